@@ -0,0 +1,45 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.benchmark;
+
+import net.cassite.desktop.chara.graphic.AsciiEscapeParser;
+import net.cassite.desktop.chara.graphic.TextInfo;
+import org.openjdk.jmh.annotations.*;
+import vproxybase.util.Logger;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing colored log output shown in the console.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class AsciiEscapeParserBenchmark {
+    private static final String[] COLORS = {Logger.DEBUG_COLOR, Logger.INFO_COLOR, Logger.WARN_COLOR, Logger.ERROR_COLOR};
+
+    @Param({"100", "1000", "10000"})
+    public int lines;
+
+    private String text;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines; ++i) {
+            sb.append(COLORS[i % COLORS.length])
+                .append("2021-01-01 00:00:00.000 ")
+                .append(Logger.RESET_COLOR)
+                .append("net.cassite.desktop.chara.Main - loading image: static/")
+                .append(i)
+                .append(".png from [1600,2400] to [400,300,800,1800]\n");
+        }
+        text = sb.toString();
+    }
+
+    @Benchmark
+    public List<TextInfo> parse() {
+        return new AsciiEscapeParser().parse(text);
+    }
+}
@@ -0,0 +1,59 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.benchmark;
+
+import net.cassite.desktop.chara.util.EventBus;
+import net.cassite.desktop.chara.util.Key;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishing events to a number of watchers, until all of them are handled on the JavaFX thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class EventBusBenchmark {
+    private static final int BATCH = 1000;
+
+    @Param({"1", "10", "100"})
+    public int watchers;
+
+    private Key<Integer> key;
+    private final List<EventBus.WatchingRegistration<Integer>> registrations = new ArrayList<>();
+    private final AtomicLong handled = new AtomicLong();
+    private long expected = 0;
+
+    @Setup
+    public void setup() {
+        FX.startup();
+        key = Key.of("benchmark-" + watchers, Integer.class);
+        for (int i = 0; i < watchers; ++i) {
+            registrations.add(EventBus.watch(key, n -> handled.incrementAndGet()));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (var r : registrations) {
+            r.cancel();
+        }
+        registrations.clear();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void publish() {
+        expected += (long) BATCH * watchers;
+        for (int i = 0; i < BATCH; ++i) {
+            EventBus.publish(key, i);
+        }
+        while (handled.get() < expected) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.benchmark;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Start the JavaFX toolkit once, images cannot be created without it.
+ */
+public class FX {
+    private static boolean started = false;
+
+    private FX() {
+    }
+
+    public static synchronized void startup() {
+        if (started) {
+            return;
+        }
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            Platform.startup(latch::countDown);
+        } catch (IllegalStateException e) {
+            // already started
+            latch.countDown();
+        }
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        Platform.setImplicitExit(false);
+        started = true;
+    }
+}
@@ -0,0 +1,110 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.benchmark;
+
+import net.cassite.desktop.chara.manager.FrameCache;
+import net.cassite.desktop.chara.manager.ModelArchive;
+import net.cassite.desktop.chara.util.XImage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Reading frames from the packed frame cache, which is memory mapped.<br>
+ * <code>user.home</code> is redirected to a temporary directory, the real cache is not touched.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class FrameCacheBenchmark {
+    private static final String MODEL_NAME = "benchmark";
+    private static final int FRAME_COUNT = 32;
+
+    @Param({"200x300", "800x1200", "1600x2400"})
+    public String size;
+
+    private File home;
+    private String oldHome;
+    private ModelArchive archive;
+    private FrameCache cache;
+    private ZipEntry[] entries;
+    private String[] names;
+    private int next = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        FX.startup();
+        String[] wh = size.split("x");
+        int width = Integer.parseInt(wh[0]);
+        int height = Integer.parseInt(wh[1]);
+
+        home = Files.createTempDirectory("chara-benchmark").toFile();
+        oldHome = System.getProperty("user.home");
+        System.setProperty("user.home", home.getAbsolutePath());
+
+        // the entries only need different crc32, the content is never decoded
+        File modelFile = new File(home, MODEL_NAME + ".model");
+        Random rand = new Random(0);
+        try (var zip = new ZipOutputStream(new FileOutputStream(modelFile))) {
+            for (int i = 0; i < FRAME_COUNT; ++i) {
+                zip.putNextEntry(new ZipEntry(MODEL_NAME + "/" + i + ".png"));
+                byte[] b = new byte[1024];
+                rand.nextBytes(b);
+                zip.write(b);
+                zip.closeEntry();
+            }
+        }
+        archive = ModelArchive.open(modelFile.getAbsolutePath());
+
+        names = new String[FRAME_COUNT];
+        entries = new ZipEntry[FRAME_COUNT];
+        var writing = FrameCache.open(MODEL_NAME);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; ++i) {
+            pixels[i] = i % 7 == 0 ? 0 : 0xff000000 | i;
+        }
+        for (int i = 0; i < FRAME_COUNT; ++i) {
+            names[i] = i + ".png";
+            entries[i] = archive.getEntry(MODEL_NAME + "/" + names[i]);
+            writing.put(names[i], entries[i], 0, 0, width, height, pixels);
+        }
+        writing.flush(archive, MODEL_NAME + "/");
+
+        // the cache file appears when the background flush is done
+        File packed = new File(home, ".chara/cache/" + MODEL_NAME + ".frames");
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (!packed.isFile()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("frame cache is not flushed in time");
+            }
+            //noinspection BusyWait
+            Thread.sleep(50);
+        }
+        cache = FrameCache.open(MODEL_NAME);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ModelArchive.release();
+        System.setProperty("user.home", oldHome);
+        try (var files = Files.walk(home.toPath())) {
+            //noinspection ResultOfMethodCallIgnored
+            files.sorted(Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public XImage get() {
+        int i = next;
+        next = (i + 1) % FRAME_COUNT;
+        return cache.get(names[i], entries[i]);
+    }
+}
@@ -0,0 +1,62 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.benchmark;
+
+import net.cassite.desktop.chara.graphic.FrameBasedAnimationHelper;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
+import net.cassite.desktop.chara.util.Clock;
+import net.cassite.desktop.chara.util.VirtualClock;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stepping one virtual second of animations through <code>HZ</code> with a {@link VirtualClock},
+ * without waiting for real time or the JavaFX pulse.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class HZBenchmark {
+    private static final int FRAMES = 1_000_000;
+
+    @Param({"10", "100"})
+    public int animations;
+
+    private Clock previous;
+    private VirtualClock clock;
+    private final List<FrameBasedAnimationHelper> helpers = new ArrayList<>();
+
+    @Setup
+    public void setup(Blackhole bh) {
+        previous = Clock.get();
+        clock = new VirtualClock();
+        Clock.use(clock);
+        UpdatePriority[] priorities = UpdatePriority.values();
+        for (int i = 0; i < animations; ++i) {
+            var helper = new FrameBasedAnimationHelper(FRAMES, bh::consume)
+                .setPriority(priorities[i % priorities.length]);
+            // the same fps as most animations of the characters
+            helper.play(45);
+            helpers.add(helper);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (var helper : helpers) {
+            helper.pause();
+        }
+        helpers.clear();
+        clock.advance(1000);
+        Clock.use(previous);
+    }
+
+    @Benchmark
+    public void oneSecond() {
+        clock.advance(1000);
+    }
+}
@@ -0,0 +1,36 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.benchmark;
+
+import net.cassite.desktop.chara.util.RateLimiter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requesting a rate limiter which already recorded <code>maxCount</code> events,
+ * so every request scans all of them and fails, as it does when the limited action is triggered rapidly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+    @Param({"10", "100", "1000"})
+    public int maxCount;
+
+    private RateLimiter limiter;
+
+    @Setup
+    public void setup() {
+        // long enough for events not to expire during the measurement
+        limiter = new RateLimiter(3_600_000, maxCount, 7_200_000, maxCount * 2);
+        //noinspection StatementWithEmptyBody
+        while (limiter.request()) {
+        }
+    }
+
+    @Benchmark
+    public boolean request() {
+        return limiter.request();
+    }
+}
@@ -0,0 +1,66 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.benchmark;
+
+import javafx.application.Platform;
+import javafx.stage.Stage;
+import net.cassite.desktop.chara.graphic.StageTransformer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting coordinates between the scene and the original image, as done for every mouse event.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class StageTransformerBenchmark {
+    @Param({"100", "10000"})
+    public int points;
+
+    private StageTransformer transformer;
+    private double[] xs;
+    private double[] ys;
+
+    @Setup
+    public void setup() throws Exception {
+        FX.startup();
+        // stages can only be created on the JavaFX thread
+        CompletableFuture<StageTransformer> future = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            var t = new StageTransformer(new Stage(), 1600, 2400, 200, 300, 100, 50, 40);
+            t.scale(0.35);
+            future.complete(t);
+        });
+        transformer = future.get();
+
+        Random rand = new Random(0);
+        xs = new double[points];
+        ys = new double[points];
+        for (int i = 0; i < points; ++i) {
+            xs[i] = rand.nextDouble() * 400;
+            ys[i] = rand.nextDouble() * 800;
+        }
+    }
+
+    @Benchmark
+    public double sceneToImage() {
+        double sum = 0;
+        for (int i = 0; i < points; ++i) {
+            sum += transformer.getImageXBySceneX(xs[i]) + transformer.getImageYBySceneY(ys[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double imageToScene() {
+        double sum = 0;
+        for (int i = 0; i < points; ++i) {
+            sum += transformer.getSceneXByImageX(xs[i]) + transformer.getSceneYByImageY(ys[i]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,115 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.benchmark;
+
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+import net.cassite.desktop.chara.util.ImageTrimmer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trimming transparent borders of a high dpi frame:
+ * the per-pixel <code>getArgb</code> loops used before, against {@link ImageTrimmer}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class TrimBenchmark {
+    @Param({"400x600", "800x1200", "1600x2400"})
+    public String size;
+
+    private int width;
+    private int height;
+    private PixelReader reader;
+    private int[] argb;
+
+    @Setup
+    public void setup() {
+        FX.startup();
+        String[] wh = size.split("x");
+        width = Integer.parseInt(wh[0]);
+        height = Integer.parseInt(wh[1]);
+
+        // like a character frame: an opaque shape in the middle, surrounded by transparent pixels
+        argb = new int[width * height];
+        double cx = width / 2.0;
+        double cy = height * 0.55;
+        double rx = width * 0.3;
+        double ry = height * 0.4;
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                double dx = (x - cx) / rx;
+                double dy = (y - cy) / ry;
+                if (dx * dx + dy * dy <= 1) {
+                    argb[y * width + x] = 0xff000000 | (x * 31 + y * 17);
+                }
+            }
+        }
+        WritableImage image = new WritableImage(width, height);
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), argb, 0, width);
+        reader = image.getPixelReader();
+    }
+
+    @Benchmark
+    public int[] legacyLoop() {
+        return legacyTrim(reader, width, height);
+    }
+
+    @Benchmark
+    public ImageTrimmer.Bounds trimmerReader() {
+        return ImageTrimmer.trim(reader, width, height);
+    }
+
+    @Benchmark
+    public ImageTrimmer.Bounds trimmerArray() {
+        return ImageTrimmer.trim(argb, 0, width, width, height);
+    }
+
+    // the scanning code previously in ImageManager.load
+    private static int[] legacyTrim(PixelReader reader, int width, int height) {
+        int startX = width;
+        int startY = height;
+        int endX = 0;
+        int endY = 0;
+        for (int y = 0; y < height; ++y) {
+            int first = width;
+            int last = 0;
+            for (int x = 0; x < width; ++x) {
+                if (reader.getArgb(x, y) != 0) {
+                    if (first == width) {
+                        first = x;
+                    }
+                    last = x;
+                }
+            }
+            if (first < startX) {
+                startX = first;
+            }
+            if (last >= endX) {
+                endX = last + 1;
+            }
+        }
+        for (int x = 0; x < width; ++x) {
+            int first = height;
+            int last = 0;
+            for (int y = 0; y < height; ++y) {
+                if (reader.getArgb(x, y) != 0) {
+                    if (first == height) {
+                        first = y;
+                    }
+                    last = y;
+                }
+            }
+            if (first < startY) {
+                startY = first;
+            }
+            if (last >= endY) {
+                endY = last;
+            }
+        }
+        return new int[]{startX, startY, endX - startX, endY - startY};
+    }
+}
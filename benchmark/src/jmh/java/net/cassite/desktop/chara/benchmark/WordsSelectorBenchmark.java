@@ -0,0 +1,39 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.benchmark;
+
+import net.cassite.desktop.chara.i18n.Words;
+import net.cassite.desktop.chara.i18n.WordsSelector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Randomly selecting words while avoiding the recently selected ones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class WordsSelectorBenchmark {
+    @Param({"10", "100", "1000"})
+    public int count;
+
+    private WordsSelector selector;
+
+    @Setup
+    public void setup() {
+        Words[] words = new Words[count];
+        for (int i = 0; i < count; ++i) {
+            words[i] = Words.fromMap(Map.of(
+                "CS", new String[]{"words " + i},
+                "EN", new String[]{"words " + i}));
+        }
+        selector = new WordsSelector(words);
+    }
+
+    @Benchmark
+    public Words select() {
+        return selector.select();
+    }
+}
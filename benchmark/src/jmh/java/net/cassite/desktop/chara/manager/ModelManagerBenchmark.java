@@ -0,0 +1,75 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.manager;
+
+import net.cassite.desktop.chara.i18n.WordsSelector;
+import net.cassite.desktop.chara.util.Rec;
+import org.openjdk.jmh.annotations.*;
+import vjson.JSON;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing words and values files of a model.<br>
+ * The class is in the same package as {@link ModelManager} to reach the parsing methods.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ModelManagerBenchmark {
+    @Param({"10", "100", "1000"})
+    public int entries;
+
+    private String words;
+    private String values;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < entries; ++i) {
+            sb.append("-----BEGIN WORDS-----\n")
+                .append("-----BEGIN CS-----\n")
+                .append("第").append(i).append("句话\n")
+                .append("第").append(i).append("句话的下一句\n")
+                .append("-----END CS-----\n")
+                .append("-----BEGIN EN-----\n")
+                .append("words number ").append(i).append("\n")
+                .append("the next line of words number ").append(i).append("\n")
+                .append("-----END EN-----\n")
+                .append("-----END WORDS-----\n\n");
+        }
+        words = sb.toString();
+
+        sb = new StringBuilder("{\"integers\":{");
+        for (int i = 0; i < entries; ++i) {
+            sb.append(i == 0 ? "" : ",").append("\"int").append(i).append("\":").append(i);
+        }
+        sb.append("},\"doubles\":{");
+        for (int i = 0; i < entries; ++i) {
+            sb.append(i == 0 ? "" : ",").append("\"double").append(i).append("\":").append(i).append(".5");
+        }
+        sb.append("},\"integerRectangles\":{");
+        for (int i = 0; i < entries; ++i) {
+            sb.append(i == 0 ? "" : ",").append("\"rec").append(i).append("\":[")
+                .append(i).append(",").append(i).append(",100,200]");
+        }
+        sb.append("}}");
+        values = sb.toString();
+    }
+
+    @Benchmark
+    public WordsSelector parseWords() throws Exception {
+        return ModelManager.parseWords(words);
+    }
+
+    @Benchmark
+    public Map<String, Rec> parseValues() {
+        var intMap = new HashMap<String, Integer>();
+        var doubleMap = new HashMap<String, Double>();
+        var intRecMap = new HashMap<String, Rec>();
+        ModelManager.readValues((JSON.Object) JSON.parse(values), intMap, doubleMap, intRecMap);
+        return intRecMap;
+    }
+}
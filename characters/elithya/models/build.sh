@@ -52,6 +52,12 @@ function build_model() {
   mv "$model/$model.model" ./$model.model
 }
 
+function compile_models() {
+  cd ../
+  ./gradlew compileModels "-Pmodels=models/elithya-high-dpi.model,models/elithya-mini.model"
+  cd ./models
+}
+
 clean_shared
 clean_output
 clean_model "elithya-high-dpi"
@@ -63,6 +69,7 @@ copy_shared "elithya-mini"
 
 build_model "elithya-high-dpi"
 build_model "elithya-mini"
+compile_models
 
 clean_shared
 clean_model "elithya-high-dpi"
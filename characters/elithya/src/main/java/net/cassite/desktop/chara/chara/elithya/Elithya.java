@@ -12,7 +12,6 @@ import javafx.scene.input.KeyEvent;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 import net.cassite.desktop.chara.AppCallback;
-import net.cassite.desktop.chara.ThreadUtils;
 import net.cassite.desktop.chara.chara.Chara;
 import net.cassite.desktop.chara.chara.elithya.chat.ElithyaChatbot;
 import net.cassite.desktop.chara.chara.elithya.join.*;
@@ -23,11 +22,11 @@ import net.cassite.desktop.chara.chara.elithya.util.ElithyaSavingConsts;
 import net.cassite.desktop.chara.graphic.TimeBasedAnimationHelper;
 import net.cassite.desktop.chara.manager.ConfigManager;
 import net.cassite.desktop.chara.util.Logger;
+import net.cassite.desktop.chara.util.Clock;
 import net.cassite.desktop.chara.util.Scheduled;
 import net.cassite.desktop.chara.util.Utils;
 
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.TimeUnit;
 
 public class Elithya implements Chara {
     private final AppCallback appCallback;
@@ -136,7 +135,7 @@ public class Elithya implements Chara {
             .setMaxY(elithyaConsts.imageHeight)
             .build();
 
-        randomEventsScheduled = ThreadUtils.get().scheduleAtFixedRateFX(this::randomEvents, 1_000, 3_000, TimeUnit.MILLISECONDS);
+        randomEventsScheduled = Clock.get().scheduleAtFixedRate(this::randomEvents, 1_000, 3_000);
     }
 
     @Override
@@ -9,6 +9,7 @@ import net.cassite.desktop.chara.chara.elithya.parts.HandRight;
 import net.cassite.desktop.chara.chara.elithya.parts.WandLight;
 import net.cassite.desktop.chara.graphic.HZ;
 import net.cassite.desktop.chara.graphic.Updatable;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
 import net.cassite.desktop.chara.chara.elithya.util.ElithyaConsts;
 import net.cassite.desktop.chara.util.Utils;
 
@@ -42,7 +43,18 @@ public class ArmRightJoin {
     private final double handMax;
     private final double handV;
 
-    private final Updatable updatable = this::update;
+    private final Updatable updatable = new Updatable() {
+        @Override
+        public void update(long current) {
+            ArmRightJoin.this.update(current);
+        }
+
+        @Override
+        public UpdatePriority priority() {
+            // following the cursor, and counting ticks
+            return UpdatePriority.HIGH;
+        }
+    };
 
     public ArmRightJoin(WandLight wandLight, HandRight hand, ArmForeRight fore, ArmUpperRight upper, ElithyaConsts elithyaConsts) {
         this.wandLight = wandLight;
@@ -116,22 +128,29 @@ public class ArmRightJoin {
     private double foreCur;
     private double handCur;
     private int skipTickCount = 0;
+    private long lastTs = -1;
     private boolean startedTracking = false;
 
     private void update(long ts) {
-        if (skipTickCount++ < elithyaConsts.armRightRotateSkipTick) {
+        // ticks may be longer than HZ.UNIT, e.g. with a frame rate cap, so count the elapsed units instead of ticks
+        int units = lastTs == -1 ? 1 : (int) Math.max(1, (ts - lastTs) / HZ.UNIT);
+        lastTs = ts;
+        skipTickCount += units;
+        int period = elithyaConsts.armRightRotateSkipTick + 1;
+        if (skipTickCount < period) {
             return;
         }
+        double steps = (double) skipTickCount / period;
         skipTickCount = 0;
 
         double[] dis = new double[8];
         Arrays.fill(dis, Double.MAX_VALUE);
-        double foreAdd = foreCur + foreV;
-        double foreSub = foreCur - foreV;
+        double foreAdd = foreCur + foreV * steps;
+        double foreSub = foreCur - foreV * steps;
         boolean foreAddOk = foreAdd < foreMax;
         boolean foreSubOk = foreSub > foreMin;
-        double handAdd = handCur + handV;
-        double handSub = handCur - handV;
+        double handAdd = handCur + handV * steps;
+        double handSub = handCur - handV * steps;
         boolean handAddOk = handAdd < handMax;
         boolean handSubOk = handSub > handMin;
         if (foreAddOk)
@@ -162,6 +181,7 @@ public class ArmRightJoin {
         if (idx == -1) {
             HZ.get().deregister(updatable);
             startedTracking = false;
+            lastTs = -1;
             return;
         }
 
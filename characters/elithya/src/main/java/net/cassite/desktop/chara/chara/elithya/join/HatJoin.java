@@ -6,7 +6,10 @@ import net.cassite.desktop.chara.chara.elithya.parts.HatBack;
 import net.cassite.desktop.chara.chara.elithya.parts.HatFront;
 import net.cassite.desktop.chara.chara.elithya.util.ElithyaUtils;
 import net.cassite.desktop.chara.graphic.HZ;
+import net.cassite.desktop.chara.graphic.Updatable;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
 import net.cassite.desktop.chara.chara.elithya.util.ElithyaConsts;
+import net.cassite.desktop.chara.util.Clock;
 
 public class HatJoin {
     private final HatFront hatFront;
@@ -77,8 +80,18 @@ public class HatJoin {
             return;
         }
         isAnimatingPosition = true;
-        beginTs = System.currentTimeMillis();
-        HZ.get().register(this::updatePosition);
+        beginTs = Clock.get().currentTimeMillis();
+        HZ.get().register(new Updatable() {
+            @Override
+            public void update(long current) {
+                updatePosition(current);
+            }
+
+            @Override
+            public UpdatePriority priority() {
+                return UpdatePriority.LOW;
+            }
+        });
     }
 
     private void updatePosition(long ts) {
@@ -7,6 +7,7 @@ import javafx.scene.transform.Rotate;
 import net.cassite.desktop.chara.chara.elithya.join.LanternJoin;
 import net.cassite.desktop.chara.chara.parts.AbstractPart;
 import net.cassite.desktop.chara.graphic.TimeBasedAnimationHelper;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
 import net.cassite.desktop.chara.chara.elithya.util.ElithyaConsts;
 
 public class AbstractChainRotate extends AbstractPart {
@@ -19,7 +20,8 @@ public class AbstractChainRotate extends AbstractPart {
         root.getTransforms().add(rotate);
     }
 
-    private final TimeBasedAnimationHelper swingAnimation = new TimeBasedAnimationHelper(0, this::update);
+    private final TimeBasedAnimationHelper swingAnimation = new TimeBasedAnimationHelper(0, this::update)
+        .setPriority(UpdatePriority.LOW);
     private int state;
     protected double swingDirection;
 
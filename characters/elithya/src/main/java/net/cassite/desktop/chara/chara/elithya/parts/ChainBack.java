@@ -6,6 +6,7 @@ import javafx.scene.Group;
 import net.cassite.desktop.chara.chara.elithya.join.LanternJoin;
 import net.cassite.desktop.chara.chara.elithya.util.ElithyaUtils;
 import net.cassite.desktop.chara.graphic.Anima;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
 import net.cassite.desktop.chara.chara.elithya.util.ElithyaConsts;
 import net.cassite.desktop.chara.util.Utils;
 
@@ -26,27 +27,27 @@ public class ChainBack extends AbstractChainRotate {
                 Utils.buildSeqNames("animation/045_chain_back/chain_back_", 0, 30, ".png"),
                 Utils.buildSeqNames("animation/045_chain_back/chain_back_", 40, 60, ".png")
             ))
-            .setFps(LanternJoin.beginFps);
+            .setFps(LanternJoin.beginFps).setPriority(UpdatePriority.LOW);
         chainBack1.addTo(root);
         chainBack2 = new Anima("animation/045_chain_back/chain_back_010.png",
             Utils.buildSeqNames("animation/045_chain_back/chain_back_", 10, 30, ".png"));
-        chainBack2.setFps(LanternJoin.slowFps);
+        chainBack2.setFps(LanternJoin.slowFps).setPriority(UpdatePriority.LOW);
         chainBack3 = new Anima("animation/045_chain_back/chain_back_030.png",
             Utils.buildSeqNames("animation/045_chain_back/chain_back_", 30, 40, ".png"));
-        chainBack3.setFps(LanternJoin.finishFps);
+        chainBack3.setFps(LanternJoin.finishFps).setPriority(UpdatePriority.LOW);
 
         chainBackReverse1 = new Anima("animation/045_chain_back/chain_back_039.png",
             ElithyaUtils.joinSeqs(
                 Utils.buildSeqNamesReverse("animation/045_chain_back/chain_back_", 39, 10, ".png"),
                 Utils.buildSeqNamesReverse("animation/045_chain_back/chain_back_", 59, 40, ".png")
             ));
-        chainBackReverse1.setFps(LanternJoin.beginFps);
+        chainBackReverse1.setFps(LanternJoin.beginFps).setPriority(UpdatePriority.LOW);
         chainBackReverse2 = new Anima("animation/045_chain_back/chain_back_029.png",
             Utils.buildSeqNamesReverse("animation/045_chain_back/chain_back_", 29, 10, ".png"));
-        chainBackReverse2.setFps(LanternJoin.slowFps);
+        chainBackReverse2.setFps(LanternJoin.slowFps).setPriority(UpdatePriority.LOW);
         chainBackReverse3 = new Anima("animation/045_chain_back/chain_back_009.png",
             Utils.buildSeqNamesReverse("animation/045_chain_back/chain_back_", 9, 0, ".png"));
-        chainBackReverse3.setFps(LanternJoin.finishFps);
+        chainBackReverse3.setFps(LanternJoin.finishFps).setPriority(UpdatePriority.LOW);
     }
 
     private boolean isPlaying = false;
@@ -6,6 +6,7 @@ import javafx.scene.Group;
 import net.cassite.desktop.chara.chara.elithya.join.LanternJoin;
 import net.cassite.desktop.chara.chara.elithya.util.ElithyaUtils;
 import net.cassite.desktop.chara.graphic.Anima;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
 import net.cassite.desktop.chara.chara.elithya.util.ElithyaConsts;
 import net.cassite.desktop.chara.util.Utils;
 
@@ -26,27 +27,27 @@ public class ChainFront extends AbstractChainRotate {
                 Utils.buildSeqNames("animation/042_chain_front/chain_front_", 0, 30, ".png"),
                 Utils.buildSeqNames("animation/042_chain_front/chain_front_", 40, 60, ".png")
             ))
-            .setFps(LanternJoin.beginFps);
+            .setFps(LanternJoin.beginFps).setPriority(UpdatePriority.LOW);
         chainFront1.addTo(root);
         chainFront2 = new Anima("animation/042_chain_front/chain_front_010.png",
             Utils.buildSeqNames("animation/042_chain_front/chain_front_", 10, 30, ".png"));
-        chainFront2.setFps(LanternJoin.slowFps);
+        chainFront2.setFps(LanternJoin.slowFps).setPriority(UpdatePriority.LOW);
         chainFront3 = new Anima("animation/042_chain_front/chain_front_030.png",
             Utils.buildSeqNames("animation/042_chain_front/chain_front_", 30, 40, ".png"));
-        chainFront3.setFps(LanternJoin.finishFps);
+        chainFront3.setFps(LanternJoin.finishFps).setPriority(UpdatePriority.LOW);
 
         chainFrontReverse1 = new Anima("animation/042_chain_front/chain_front_039.png",
             ElithyaUtils.joinSeqs(
                 Utils.buildSeqNamesReverse("animation/042_chain_front/chain_front_", 39, 10, ".png"),
                 Utils.buildSeqNamesReverse("animation/042_chain_front/chain_front_", 59, 40, ".png")
             ));
-        chainFrontReverse1.setFps(LanternJoin.beginFps);
+        chainFrontReverse1.setFps(LanternJoin.beginFps).setPriority(UpdatePriority.LOW);
         chainFrontReverse2 = new Anima("animation/042_chain_front/chain_front_029.png",
             Utils.buildSeqNamesReverse("animation/042_chain_front/chain_front_", 29, 10, ".png"));
-        chainFrontReverse2.setFps(LanternJoin.slowFps);
+        chainFrontReverse2.setFps(LanternJoin.slowFps).setPriority(UpdatePriority.LOW);
         chainFrontReverse3 = new Anima("animation/042_chain_front/chain_front_009.png",
             Utils.buildSeqNamesReverse("animation/042_chain_front/chain_front_", 9, 0, ".png"));
-        chainFrontReverse3.setFps(LanternJoin.finishFps);
+        chainFrontReverse3.setFps(LanternJoin.finishFps).setPriority(UpdatePriority.LOW);
     }
 
     private boolean isPlaying = false;
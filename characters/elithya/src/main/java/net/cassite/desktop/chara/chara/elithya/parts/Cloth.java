@@ -6,6 +6,7 @@ import javafx.scene.Group;
 import net.cassite.desktop.chara.chara.elithya.util.ElithyaUtils;
 import net.cassite.desktop.chara.chara.parts.AbstractPart;
 import net.cassite.desktop.chara.graphic.Anima;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
 import net.cassite.desktop.chara.util.Utils;
 
 public class Cloth extends AbstractPart {
@@ -25,27 +26,27 @@ public class Cloth extends AbstractPart {
                 Utils.buildSeqNames("animation/022_cloth_breast/cloth_breast_", 0, 45, ".png"),
                 Utils.buildSeqNames("animation/022_cloth_breast/cloth_breast_", 60, 90, ".png")
             ))
-            .setFps(120);
+            .setFps(120).setPriority(UpdatePriority.LOW);
         cloth1.addTo(root);
         cloth2 = new Anima("animation/022_cloth_breast/cloth_breast_015.png",
             Utils.buildSeqNames("animation/022_cloth_breast/cloth_breast_", 14, 45, ".png"));
-        cloth2.setFps(80);
+        cloth2.setFps(80).setPriority(UpdatePriority.LOW);
         cloth3 = new Anima("animation/022_cloth_breast/cloth_breast_045.png",
             Utils.buildSeqNames("animation/022_cloth_breast/cloth_breast_", 44, 60, ".png"));
-        cloth3.setFps(30);
+        cloth3.setFps(30).setPriority(UpdatePriority.LOW);
 
         clothReverse1 = new Anima("animation/022_cloth_breast/cloth_breast_059.png",
             ElithyaUtils.joinSeqs(
                 Utils.buildSeqNamesReverse("animation/022_cloth_breast/cloth_breast_", 59, 15, ".png"),
                 Utils.buildSeqNamesReverse("animation/022_cloth_breast/cloth_breast_", 89, 60, ".png")
             ));
-        clothReverse1.setFps(120);
+        clothReverse1.setFps(120).setPriority(UpdatePriority.LOW);
         clothReverse2 = new Anima("animation/022_cloth_breast/cloth_breast_044.png",
             Utils.buildSeqNamesReverse("animation/022_cloth_breast/cloth_breast_", 44, 15, ".png"));
-        clothReverse2.setFps(80);
+        clothReverse2.setFps(80).setPriority(UpdatePriority.LOW);
         clothReverse3 = new Anima("animation/022_cloth_breast/cloth_breast_014.png",
             Utils.buildSeqNamesReverse("animation/022_cloth_breast/cloth_breast_", 14, 0, ".png"));
-        clothReverse3.setFps(30);
+        clothReverse3.setFps(30).setPriority(UpdatePriority.LOW);
     }
 
     private boolean isPlaying = false;
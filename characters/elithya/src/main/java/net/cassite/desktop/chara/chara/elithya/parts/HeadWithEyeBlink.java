@@ -5,6 +5,7 @@ package net.cassite.desktop.chara.chara.elithya.parts;
 import javafx.scene.Group;
 import net.cassite.desktop.chara.chara.parts.AbstractPart;
 import net.cassite.desktop.chara.graphic.Anima;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
 import net.cassite.desktop.chara.util.Utils;
 
 public class HeadWithEyeBlink extends AbstractPart {
@@ -15,7 +16,8 @@ public class HeadWithEyeBlink extends AbstractPart {
 
         head = new Anima("animation/013_head_eye_blink/head_eye_blink_000.png",
             Utils.buildSeqNames("animation/013_head_eye_blink/head_eye_blink_", 0, 20, ".png"))
-            .setFps(100);
+            .setFps(100)
+            .setPriority(UpdatePriority.HIGH);
         head.addTo(root);
     }
 
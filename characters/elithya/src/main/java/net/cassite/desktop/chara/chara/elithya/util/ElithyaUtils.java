@@ -4,6 +4,7 @@ package net.cassite.desktop.chara.chara.elithya.util;
 
 import net.cassite.desktop.chara.graphic.Anima;
 import net.cassite.desktop.chara.graphic.Div;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
 import net.cassite.desktop.chara.util.Utils;
 
 public class ElithyaUtils {
@@ -72,14 +73,14 @@ public class ElithyaUtils {
     public static LoopingAnima buildLoopingAnima(String prefix, int step, String suffix) {
         return new LoopingAnima(
             new Anima(prefix + "000" + suffix,
-                Utils.buildSeqNames(prefix, 0, step * 3, suffix)),
+                Utils.buildSeqNames(prefix, 0, step * 3, suffix)).setPriority(UpdatePriority.LOW),
             new Anima(prefix + n2s(4 * step) + suffix,
                 joinSeqs(
                     Utils.buildSeqNames(prefix, 4 * step, 6 * step, suffix),
                     Utils.buildSeqNames(prefix, step, 3 * step, suffix)
-                )),
+                )).setPriority(UpdatePriority.LOW),
             new Anima(prefix + n2s(3 * step) + suffix,
-                Utils.buildSeqNames(prefix, 3 * step, 4 * step, suffix))
+                Utils.buildSeqNames(prefix, 3 * step, 4 * step, suffix)).setPriority(UpdatePriority.LOW)
         );
     }
 }
@@ -10,6 +10,7 @@ import net.cassite.desktop.chara.model.Model;
 import net.cassite.desktop.chara.model.ModelInitConfig;
 import net.cassite.desktop.chara.util.ResourceHandler;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -58,6 +59,11 @@ public class ElithyaModel implements Model {
         return Arrays.asList(images);
     }
 
+    @Override
+    public List<String> firstPaintImages() {
+        return firstPaintImages;
+    }
+
     @Override
     public List<ResourceHandler> resourceHandlers() {
         return Collections.emptyList();
@@ -2361,4 +2367,114 @@ public class ElithyaModel implements Model {
         "animation/002_hat_front/hat_front_038.png",
         "animation/002_hat_front/hat_front_039.png"
     };
+
+    // default images of the animations
+    private static final String[] defaultAnimationImages = new String[]{
+        "animation/013_head_eye_blink/head_eye_blink_000.png",
+        "animation/022_cloth_breast/cloth_breast_000.png",
+        "animation/022_cloth_breast/cloth_breast_014.png",
+        "animation/022_cloth_breast/cloth_breast_015.png",
+        "animation/022_cloth_breast/cloth_breast_044.png",
+        "animation/022_cloth_breast/cloth_breast_045.png",
+        "animation/022_cloth_breast/cloth_breast_059.png",
+        "animation/042_chain_front/chain_front_000.png",
+        "animation/042_chain_front/chain_front_009.png",
+        "animation/042_chain_front/chain_front_010.png",
+        "animation/042_chain_front/chain_front_029.png",
+        "animation/042_chain_front/chain_front_030.png",
+        "animation/042_chain_front/chain_front_039.png",
+        "animation/045_chain_back/chain_back_000.png",
+        "animation/045_chain_back/chain_back_009.png",
+        "animation/045_chain_back/chain_back_010.png",
+        "animation/045_chain_back/chain_back_029.png",
+        "animation/045_chain_back/chain_back_030.png",
+        "animation/045_chain_back/chain_back_039.png",
+        "animation/040_hair_back/hair_back_000.png",
+        "animation/040_hair_back/hair_back_045.png",
+        "animation/040_hair_back/hair_back_060.png",
+        "animation/002_hat_front/hat_front_000.png",
+        "animation/002_hat_front/hat_front_030.png",
+        "animation/002_hat_front/hat_front_040.png",
+        "animation/020_cloak_front/cloak_front_000.png",
+        "animation/020_cloak_front/cloak_front_030.png",
+        "animation/020_cloak_front/cloak_front_040.png",
+        "animation/005_hair_dumb/hair_dumb_000.png",
+        "animation/005_hair_dumb/hair_dumb_030.png",
+        "animation/005_hair_dumb/hair_dumb_040.png",
+        "animation/025_skirt_front/skirt_front_000.png",
+        "animation/025_skirt_front/skirt_front_030.png",
+        "animation/025_skirt_front/skirt_front_040.png",
+        "animation/027_001_leg_left_purple/leg_left_purple_000.png",
+        "animation/027_001_leg_left_purple/leg_left_purple_045.png",
+        "animation/027_001_leg_left_purple/leg_left_purple_060.png",
+        "animation/027_002_leg_left_black/leg_left_black_000.png",
+        "animation/027_002_leg_left_black/leg_left_black_045.png",
+        "animation/027_002_leg_left_black/leg_left_black_060.png",
+        "animation/027_003_leg_left_none/leg_left_none_000.png",
+        "animation/027_003_leg_left_none/leg_left_none_045.png",
+        "animation/027_003_leg_left_none/leg_left_none_060.png",
+        "animation/026_001_shoe_front_left_purple/shoe_front_left_purple_000.png",
+        "animation/026_001_shoe_front_left_purple/shoe_front_left_purple_045.png",
+        "animation/026_001_shoe_front_left_purple/shoe_front_left_purple_060.png",
+        "animation/028_001_shoe_back_left_purple/shoe_back_left_purple_000.png",
+        "animation/028_001_shoe_back_left_purple/shoe_back_left_purple_045.png",
+        "animation/028_001_shoe_back_left_purple/shoe_back_left_purple_060.png",
+        "animation/026_002_shoe_front_left_black/shoe_front_left_black_000.png",
+        "animation/026_002_shoe_front_left_black/shoe_front_left_black_045.png",
+        "animation/026_002_shoe_front_left_black/shoe_front_left_black_060.png",
+        "animation/028_002_shoe_back_left_black/shoe_back_left_black_000.png",
+        "animation/028_002_shoe_back_left_black/shoe_back_left_black_045.png",
+        "animation/028_002_shoe_back_left_black/shoe_back_left_black_060.png",
+        "animation/030_001_leg_right_purple/leg_right_purple_000.png",
+        "animation/030_001_leg_right_purple/leg_right_purple_045.png",
+        "animation/030_001_leg_right_purple/leg_right_purple_060.png",
+        "animation/030_002_leg_right_black/leg_right_black_000.png",
+        "animation/030_002_leg_right_black/leg_right_black_045.png",
+        "animation/030_002_leg_right_black/leg_right_black_060.png",
+        "animation/030_003_leg_right_none/leg_right_none_000.png",
+        "animation/030_003_leg_right_none/leg_right_none_045.png",
+        "animation/030_003_leg_right_none/leg_right_none_060.png",
+        "animation/029_001_shoe_front_right_purple/shoe_front_right_purple_000.png",
+        "animation/029_001_shoe_front_right_purple/shoe_front_right_purple_045.png",
+        "animation/029_001_shoe_front_right_purple/shoe_front_right_purple_060.png",
+        "animation/031_001_shoe_back_right_purple/shoe_back_right_purple_000.png",
+        "animation/031_001_shoe_back_right_purple/shoe_back_right_purple_045.png",
+        "animation/031_001_shoe_back_right_purple/shoe_back_right_purple_060.png",
+        "animation/029_002_shoe_front_right_black/shoe_front_right_black_000.png",
+        "animation/029_002_shoe_front_right_black/shoe_front_right_black_045.png",
+        "animation/029_002_shoe_front_right_black/shoe_front_right_black_060.png",
+        "animation/031_002_shoe_back_right_black/shoe_back_right_black_000.png",
+        "animation/031_002_shoe_back_right_black/shoe_back_right_black_045.png",
+        "animation/031_002_shoe_back_right_black/shoe_back_right_black_060.png",
+        "animation/034_hair_side_right/hair_side_right_000.png",
+        "animation/034_hair_side_right/hair_side_right_045.png",
+        "animation/034_hair_side_right/hair_side_right_060.png",
+        "animation/037_cloak_mid/cloak_mid_000.png",
+        "animation/037_cloak_mid/cloak_mid_030.png",
+        "animation/037_cloak_mid/cloak_mid_040.png",
+        "animation/006_hair_front/hair_front_000.png",
+        "animation/006_hair_front/hair_front_045.png",
+        "animation/006_hair_front/hair_front_060.png",
+        "animation/039_cloak_back/cloak_back_000.png",
+        "animation/039_cloak_back/cloak_back_030.png",
+        "animation/039_cloak_back/cloak_back_040.png",
+        "animation/041_hat_back/hat_back_000.png",
+        "animation/041_hat_back/hat_back_030.png",
+        "animation/041_hat_back/hat_back_040.png",
+        "animation/007_hair_side_left/hair_side_left_000.png",
+        "animation/007_hair_side_left/hair_side_left_045.png",
+        "animation/007_hair_side_left/hair_side_left_060.png",
+    };
+
+    private static final List<String> firstPaintImages = buildFirstPaintImages();
+
+    private static List<String> buildFirstPaintImages() {
+        List<String> ls = new ArrayList<>(Arrays.asList(defaultAnimationImages));
+        for (String image : images) {
+            if (image.startsWith("static/")) {
+                ls.add(image);
+            }
+        }
+        return Collections.unmodifiableList(ls);
+    }
 }
@@ -54,6 +54,12 @@ function build_model() {
   mv "$model/$model.model" ./$model.model
 }
 
+function compile_models() {
+  cd ../
+  ./gradlew compileModels "-Pmodels=models/kokori-high-dpi.model,models/kokori-mini.model"
+  cd ./models
+}
+
 clean_shared
 clean_output
 clean_model "kokori-high-dpi"
@@ -65,6 +71,7 @@ copy_shared "kokori-mini"
 
 build_model "kokori-high-dpi"
 build_model "kokori-mini"
+compile_models
 
 clean_shared
 clean_model "kokori-high-dpi"
@@ -32,12 +32,12 @@ import net.cassite.desktop.chara.manager.ConfigManager;
 import net.cassite.desktop.chara.model.kokori.KokoriConsts;
 import net.cassite.desktop.chara.util.Logger;
 import net.cassite.desktop.chara.util.Rec;
+import net.cassite.desktop.chara.util.Clock;
 import net.cassite.desktop.chara.util.Scheduled;
 import net.cassite.desktop.chara.util.Utils;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 @SuppressWarnings("FieldCanBeLocal")
 public class Kokori implements Chara {
@@ -196,8 +196,8 @@ public class Kokori implements Chara {
         // initiate random events
         {
             // run every 3 seconds
-            randomEventsScheduledFuture = ThreadUtils.get().scheduleAtFixedRateFX(this::randomEvent,
-                5 * 1000, 3 * 1000, TimeUnit.MILLISECONDS);
+            randomEventsScheduledFuture = Clock.get().scheduleAtFixedRate(this::randomEvent,
+                5 * 1000, 3 * 1000);
         }
 
         resetCharaPointsRelated();
@@ -33,7 +33,8 @@ public class KokoriChatBot {
     }
 
     public void takeMessage(String msg) {
-        ThreadUtils.get().submit(() -> doTakeMessage(msg));
+        // chatbots talk to the network
+        ThreadUtils.get().submitIO(() -> doTakeMessage(msg));
     }
 
     private void doTakeMessage(String msg) {
@@ -5,6 +5,7 @@ package net.cassite.desktop.chara.chara.kokori.join;
 import javafx.scene.transform.Rotate;
 import net.cassite.desktop.chara.chara.kokori.parts.*;
 import net.cassite.desktop.chara.graphic.TimeBasedAnimationHelper;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
 import net.cassite.desktop.chara.model.kokori.KokoriConsts;
 
 public class HeadJoin {
@@ -21,7 +22,7 @@ public class HeadJoin {
 
     private final TimeBasedAnimationHelper animationHelper = new TimeBasedAnimationHelper(
         300, this::update
-    );
+    ).setPriority(UpdatePriority.HIGH);
 
     public HeadJoin(KokoriConsts kokoriConsts, Head head, Hair hair, HairSide hairSide, HairBack hairBack,
                     EyeJoin eyeLeft, EyeJoin eyeRight, Mouth mouth, RedCheek redCheek) {
@@ -5,6 +5,7 @@ package net.cassite.desktop.chara.chara.kokori.parts;
 import javafx.scene.Group;
 import net.cassite.desktop.chara.chara.parts.AbstractPart;
 import net.cassite.desktop.chara.graphic.Anima;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
 import net.cassite.desktop.chara.util.Utils;
 
 public class Bowknot extends AbstractPart {
@@ -13,7 +14,8 @@ public class Bowknot extends AbstractPart {
     public Bowknot(Group parent) {
         super(parent);
         anima = new Anima("animation/bowknot/bowknot_000.png",
-            Utils.buildSeqNames("animation/bowknot/bowknot_", 0, 40, ".png"));
+            Utils.buildSeqNames("animation/bowknot/bowknot_", 0, 40, ".png"))
+            .setPriority(UpdatePriority.LOW);
         anima.addTo(root);
     }
 
@@ -6,6 +6,7 @@ import javafx.scene.Group;
 import net.cassite.desktop.chara.chara.parts.AbstractPart;
 import net.cassite.desktop.chara.graphic.Anima;
 import net.cassite.desktop.chara.graphic.AnimaList;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
 import net.cassite.desktop.chara.util.Utils;
 
 public class DressBack extends AbstractPart {
@@ -22,7 +23,7 @@ public class DressBack extends AbstractPart {
                 "animation/dress_back/dress_back_030.png",
                 Utils.buildSeqNames("animation/dress_back/dress_back_", 30, 40, ".png"))
                 .setFps(Anima.DEFAULT_FPS / 2)
-        );
+        ).setPriority(UpdatePriority.LOW);
     }
 
     private void swap(Anima a, Anima b) {
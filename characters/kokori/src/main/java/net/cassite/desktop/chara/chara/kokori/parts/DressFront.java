@@ -6,6 +6,7 @@ import javafx.scene.Group;
 import net.cassite.desktop.chara.chara.parts.AbstractPart;
 import net.cassite.desktop.chara.graphic.Anima;
 import net.cassite.desktop.chara.graphic.AnimaList;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
 import net.cassite.desktop.chara.util.Utils;
 
 public class DressFront extends AbstractPart {
@@ -22,7 +23,7 @@ public class DressFront extends AbstractPart {
                 "animation/dress_front/dress_front_030.png",
                 Utils.buildSeqNames("animation/dress_front/dress_front_", 30, 40, ".png"))
                 .setFps(Anima.DEFAULT_FPS / 2)
-        );
+        ).setPriority(UpdatePriority.LOW);
     }
 
     private void swap(Anima a, Anima b) {
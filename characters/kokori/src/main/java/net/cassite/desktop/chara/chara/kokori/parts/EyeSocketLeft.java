@@ -5,6 +5,7 @@ package net.cassite.desktop.chara.chara.kokori.parts;
 import javafx.scene.Group;
 import net.cassite.desktop.chara.chara.parts.AbstractPart;
 import net.cassite.desktop.chara.graphic.Anima;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
 import net.cassite.desktop.chara.util.Utils;
 
 public class EyeSocketLeft extends AbstractPart implements EyeSocket {
@@ -13,7 +14,8 @@ public class EyeSocketLeft extends AbstractPart implements EyeSocket {
     public EyeSocketLeft(Group parent) {
         super(parent);
         anima = new Anima("animation/eye_socket_left/left_eye_000.png",
-            Utils.buildSeqNames("animation/eye_socket_left/left_eye_", 0, 20, ".png"));
+            Utils.buildSeqNames("animation/eye_socket_left/left_eye_", 0, 20, ".png"))
+            .setPriority(UpdatePriority.HIGH);
         anima.addTo(root);
     }
 
@@ -5,6 +5,7 @@ package net.cassite.desktop.chara.chara.kokori.parts;
 import javafx.scene.Group;
 import net.cassite.desktop.chara.chara.parts.AbstractPart;
 import net.cassite.desktop.chara.graphic.Anima;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
 import net.cassite.desktop.chara.util.Utils;
 
 public class Hair extends AbstractPart {
@@ -15,9 +16,11 @@ public class Hair extends AbstractPart {
         super(parent);
 
         hairDumb = new Anima("animation/hair_dumb/hair_dumb_000.png",
-            Utils.buildSeqNames("animation/hair_dumb/hair_dumb_", 0, 40, ".png"));
+            Utils.buildSeqNames("animation/hair_dumb/hair_dumb_", 0, 40, ".png"))
+            .setPriority(UpdatePriority.LOW);
         hair = new Anima("animation/hair_main/hair_main_000.png",
-            Utils.buildSeqNames("animation/hair_main/hair_main_", 0, 40, ".png"));
+            Utils.buildSeqNames("animation/hair_main/hair_main_", 0, 40, ".png"))
+            .setPriority(UpdatePriority.LOW);
 
         hair.addTo(root);
         hairDumb.addTo(root);
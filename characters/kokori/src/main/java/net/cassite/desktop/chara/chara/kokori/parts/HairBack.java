@@ -5,6 +5,7 @@ package net.cassite.desktop.chara.chara.kokori.parts;
 import javafx.scene.Group;
 import net.cassite.desktop.chara.chara.parts.AbstractPart;
 import net.cassite.desktop.chara.graphic.Anima;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
 import net.cassite.desktop.chara.util.Utils;
 
 public class HairBack extends AbstractPart {
@@ -13,7 +14,8 @@ public class HairBack extends AbstractPart {
     public HairBack(Group parent) {
         super(parent);
         anima = new Anima("animation/hair_back/hair_back_000.png",
-            Utils.buildSeqNames("animation/hair_back/hair_back_", 0, 40, ".png"));
+            Utils.buildSeqNames("animation/hair_back/hair_back_", 0, 40, ".png"))
+            .setPriority(UpdatePriority.LOW);
         anima.addTo(root);
     }
 
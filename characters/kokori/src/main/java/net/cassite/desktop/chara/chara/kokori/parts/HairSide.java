@@ -7,6 +7,7 @@ import net.cassite.desktop.chara.chara.parts.AbstractPart;
 import net.cassite.desktop.chara.graphic.Anima;
 import net.cassite.desktop.chara.graphic.AnimaList;
 import net.cassite.desktop.chara.graphic.Div;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
 import net.cassite.desktop.chara.util.Utils;
 
 public class HairSide extends AbstractPart {
@@ -28,14 +29,14 @@ public class HairSide extends AbstractPart {
             new Anima("animation/hair_side_left/hair_side_left_030.png",
                 Utils.buildSeqNames("animation/hair_side_left/hair_side_left_", 30, 40, ".png"))
                 .setFps(Anima.DEFAULT_FPS / 2)
-        );
+        ).setPriority(UpdatePriority.LOW);
         hairSideRight = new AnimaList(this::swapRight,
             new Anima("animation/hair_side_right/hair_side_right_000.png",
                 Utils.buildSeqNames("animation/hair_side_right/hair_side_right_", 0, 30, ".png")),
             new Anima("animation/hair_side_right/hair_side_right_030.png",
                 Utils.buildSeqNames("animation/hair_side_right/hair_side_right_", 30, 40, ".png"))
                 .setFps(Anima.DEFAULT_FPS / 2)
-        );
+        ).setPriority(UpdatePriority.LOW);
 
         root.getChildren().add(rightGroup);
         root.getChildren().add(leftGroup);
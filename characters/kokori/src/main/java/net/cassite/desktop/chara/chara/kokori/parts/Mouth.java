@@ -8,6 +8,7 @@ import net.cassite.desktop.chara.chara.parts.AbstractPart;
 import net.cassite.desktop.chara.graphic.Anima;
 import net.cassite.desktop.chara.graphic.Static;
 import net.cassite.desktop.chara.graphic.TimeBasedAnimationHelper;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
 import net.cassite.desktop.chara.model.kokori.KokoriConsts;
 import net.cassite.desktop.chara.util.Utils;
 
@@ -31,17 +32,23 @@ public class Mouth extends AbstractPart {
         this.kokoriConsts = kokoriConsts;
 
         animaHappyToDefault = new Anima("animation/mouth/mouth_000.png",
-            Utils.buildSeqNames("animation/mouth/mouth_", 0, 12, ".png"));
+            Utils.buildSeqNames("animation/mouth/mouth_", 0, 12, ".png"))
+            .setPriority(UpdatePriority.HIGH);
         animaDefaultToHappy = new Anima("animation/mouth/mouth_011.png",
-            Utils.buildSeqNamesReverse("animation/mouth/mouth_", 11, 0, ".png"));
+            Utils.buildSeqNamesReverse("animation/mouth/mouth_", 11, 0, ".png"))
+            .setPriority(UpdatePriority.HIGH);
         animaDefaultToSad = new Anima("animation/mouth/mouth_011.png",
-            Utils.buildSeqNames("animation/mouth/mouth_", 11, 20, ".png"));
+            Utils.buildSeqNames("animation/mouth/mouth_", 11, 20, ".png"))
+            .setPriority(UpdatePriority.HIGH);
         animaSadToDefault = new Anima("animation/mouth/mouth_019.png",
-            Utils.buildSeqNamesReverse("animation/mouth/mouth_", 19, 11, ".png"));
+            Utils.buildSeqNamesReverse("animation/mouth/mouth_", 19, 11, ".png"))
+            .setPriority(UpdatePriority.HIGH);
         animaHappyToSad = new Anima("animation/mouth/mouth_000.png",
-            Utils.buildSeqNames("animation/mouth/mouth_", 0, 20, ".png"));
+            Utils.buildSeqNames("animation/mouth/mouth_", 0, 20, ".png"))
+            .setPriority(UpdatePriority.HIGH);
         animaSadToHappy = new Anima("animation/mouth/mouth_019.png",
-            Utils.buildSeqNamesReverse("animation/mouth/mouth_", 19, 0, ".png"));
+            Utils.buildSeqNamesReverse("animation/mouth/mouth_", 19, 0, ".png"))
+            .setPriority(UpdatePriority.HIGH);
         mouthOpen = new Static("static/005_z05_mouth_open.PNG");
         mouthOpen.resizeY(kokoriConsts.mouth_mouthOpen_yMinRatio);
         mouthLine = new Static("static/005_mouth_line.PNG");
@@ -208,7 +215,8 @@ public class Mouth extends AbstractPart {
     }
 
     private final TimeBasedAnimationHelper mouthOpenAnimationHelper =
-        new TimeBasedAnimationHelper(120, this::updateOpenAnimation);
+        new TimeBasedAnimationHelper(120, this::updateOpenAnimation)
+            .setPriority(UpdatePriority.HIGH);
     private double beginOpenMouthRatio = 0;
     private double targetOpenMouthRatio = 0;
 
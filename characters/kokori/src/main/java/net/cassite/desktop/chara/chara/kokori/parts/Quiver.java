@@ -5,6 +5,7 @@ package net.cassite.desktop.chara.chara.kokori.parts;
 import javafx.scene.Group;
 import net.cassite.desktop.chara.chara.parts.AbstractPart;
 import net.cassite.desktop.chara.graphic.Anima;
+import net.cassite.desktop.chara.graphic.UpdatePriority;
 import net.cassite.desktop.chara.util.Utils;
 
 public class Quiver extends AbstractPart {
@@ -13,7 +14,8 @@ public class Quiver extends AbstractPart {
     public Quiver(Group parent) {
         super(parent);
         anima = new Anima("animation/quiver/quiver_000.png",
-            Utils.buildSeqNames("animation/quiver/quiver_", 0, 30, ".png"));
+            Utils.buildSeqNames("animation/quiver/quiver_", 0, 30, ".png"))
+            .setPriority(UpdatePriority.LOW);
         anima.addTo(root);
     }
 
@@ -5,12 +5,12 @@ package net.cassite.desktop.chara.chara.kokori.personality;
 import net.cassite.desktop.chara.AppCallback;
 import net.cassite.desktop.chara.CharaPoints;
 import net.cassite.desktop.chara.Global;
-import net.cassite.desktop.chara.ThreadUtils;
 import net.cassite.desktop.chara.chara.kokori.util.Consts;
 import net.cassite.desktop.chara.manager.ConfigManager;
 import net.cassite.desktop.chara.model.kokori.KokoriConsts;
 import net.cassite.desktop.chara.util.Logger;
 import net.cassite.desktop.chara.util.RateLimiter;
+import net.cassite.desktop.chara.util.Clock;
 import net.cassite.desktop.chara.util.Scheduled;
 import net.cassite.desktop.chara.util.Utils;
 
@@ -88,7 +88,7 @@ public class KokoriPersonality {
         if (autoBondIncreasingFuture != null) {
             autoBondIncreasingFuture.cancel();
         }
-        autoBondIncreasingFuture = ThreadUtils.get().scheduleFX(() -> {
+        autoBondIncreasingFuture = Clock.get().schedule(() -> {
             autoBondIncreasingFuture = null;
             double incBondDelta;
             double incDesireDelta;
@@ -113,7 +113,7 @@ public class KokoriPersonality {
             }
             incPoints(incBondDelta, incDesireDelta);
             rescheduleAutoCharaPointsIncreasingDecreasing();
-        }, 10, TimeUnit.MINUTES);
+        }, (int) TimeUnit.MINUTES.toMillis(10));
     }
 
     public void incPoints(double bondDelta, double desireDelta) {
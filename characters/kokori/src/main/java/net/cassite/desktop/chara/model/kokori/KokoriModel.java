@@ -11,6 +11,7 @@ import net.cassite.desktop.chara.model.Model;
 import net.cassite.desktop.chara.model.ModelInitConfig;
 import net.cassite.desktop.chara.util.ResourceHandler;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -52,6 +53,11 @@ public class KokoriModel implements Model {
         return Arrays.asList(images);
     }
 
+    @Override
+    public List<String> firstPaintImages() {
+        return firstPaintImages;
+    }
+
     @Override
     public List<ResourceHandler> resourceHandlers() {
         return Collections.emptyList(); // load nothing
@@ -599,4 +605,40 @@ public class KokoriModel implements Model {
         "static/002_eye_bow_left.PNG",
         "static/001_eye_bow_right.PNG"
     };
+
+    // default images of the animations
+    private static final String[] defaultAnimationImages = new String[]{
+        "animation/bowknot/bowknot_000.png",
+        "animation/dress_back/dress_back_000.png",
+        "animation/dress_back/dress_back_030.png",
+        "animation/dress_front/dress_front_000.png",
+        "animation/dress_front/dress_front_030.png",
+        "animation/eye_socket_left/left_eye_000.png",
+        "animation/eye_socket_right/eye_right_000.png",
+        "animation/hair_back/hair_back_000.png",
+        "animation/hair_dumb/hair_dumb_000.png",
+        "animation/hair_main/hair_main_000.png",
+        "animation/hair_side_left/hair_side_left_000.png",
+        "animation/hair_side_left/hair_side_left_030.png",
+        "animation/hair_side_right/hair_side_right_000.png",
+        "animation/hair_side_right/hair_side_right_030.png",
+        "animation/leg_left/leg_left_008.png",
+        "animation/mouth/mouth_000.png",
+        "animation/mouth/mouth_011.png",
+        "animation/mouth/mouth_019.png",
+        "animation/quiver/quiver_000.png",
+        "animation/rune/rune_000.png",
+    };
+
+    private static final List<String> firstPaintImages = buildFirstPaintImages();
+
+    private static List<String> buildFirstPaintImages() {
+        List<String> ls = new ArrayList<>(Arrays.asList(defaultAnimationImages));
+        for (String image : images) {
+            if (image.startsWith("static/")) {
+                ls.add(image);
+            }
+        }
+        return Collections.unmodifiableList(ls);
+    }
 }
@@ -2,6 +2,7 @@
 
 package net.cassite.desktop.chara;
 
+import javafx.collections.ListChangeListener;
 import javafx.scene.Group;
 import javafx.scene.Scene;
 import javafx.scene.SnapshotParameters;
@@ -29,6 +30,8 @@ import net.cassite.desktop.chara.i18n.I18nConsts;
 import net.cassite.desktop.chara.i18n.Words;
 import net.cassite.desktop.chara.manager.ConfigManager;
 import net.cassite.desktop.chara.manager.FontManager;
+import net.cassite.desktop.chara.manager.ImageManager;
+import net.cassite.desktop.chara.manager.ModelArchive;
 import net.cassite.desktop.chara.manager.PluginManager;
 import net.cassite.desktop.chara.model.Model;
 import net.cassite.desktop.chara.plugin.Plugin;
@@ -60,6 +63,8 @@ public class App {
     private final ContextMenu contextMenu = new ContextMenu();
     private final Menu characterMenu = new Menu(I18nConsts.characterMenu.get()[0]);
 
+    private static final int[] FRAME_RATE_CAPS = {0, 50, 25, 20, 10}; // rates dividing HZ.MAX_FPS, see HZ#setFrameRateCap
+
     private final Group mouseCircle = new Group();
     private final Scale mouseCircleScale = new Scale(0, 0);
 
@@ -146,7 +151,7 @@ public class App {
                 shutdown.run();
                 return;
             }
-            ThreadUtils.get().scheduleFX(shutdown, timeout, TimeUnit.MILLISECONDS);
+            Clock.get().schedule(shutdown, timeout);
         });
 
         // iconified hook
@@ -156,6 +161,24 @@ public class App {
             }
         });
 
+        // suspend animations when the character cannot be seen
+        primaryStage.showingProperty().addListener((observable, oldValue, newValue) -> updateAnimationVisibility());
+        primaryStage.widthProperty().addListener((observable, oldValue, newValue) -> updateAnimationVisibility());
+        primaryStage.heightProperty().addListener((observable, oldValue, newValue) -> updateAnimationVisibility());
+        // the character may be moved to a screen with another output scale
+        primaryStage.xProperty().addListener((observable, oldValue, newValue) -> {
+            updateAnimationVisibility();
+            updateRenderScale();
+        });
+        primaryStage.yProperty().addListener((observable, oldValue, newValue) -> {
+            updateAnimationVisibility();
+            updateRenderScale();
+        });
+        Screen.getScreens().addListener((ListChangeListener<Screen>) c -> {
+            updateAnimationVisibility();
+            updateRenderScale();
+        });
+
         // calculate MAX_WIDTH and MAX_HEIGHT
         {
             double maxWidth = chara.data().imageWidth;
@@ -239,7 +262,9 @@ public class App {
         }).setFinishCallback(() -> {
             chara.release();
             PluginManager.get().release();
+            StallWatchdog.get().stop();
             ThreadUtils.get().shutdownNow();
+            ModelArchive.release();
             if (messageStage != null) {
                 messageStage.release();
             }
@@ -293,6 +318,7 @@ public class App {
         }
         primaryStage.getStage().setResizable(false);
         primaryStage.scale(initialWidth / chara.data().imageWidth);
+        updateRenderScale();
         Double configX = ConfigManager.get().getStageX();
         Double configY = ConfigManager.get().getStageY();
         if (configX != null && configY != null) {
@@ -416,12 +442,31 @@ public class App {
         if (PluginManager.get().getPlugins().isEmpty()) {
             pluginMenu.setDisable(true);
         }
+        Menu frameRateMenu = new Menu(I18nConsts.frameRateCapMenu.get()[0]);
+        {
+            Integer cap = ConfigManager.get().getFrameRateCap();
+            HZ.get().setFrameRateCap(cap == null ? 0 : cap);
+            List<CheckMenuItem> ls = new ArrayList<>();
+            for (int fps : FRAME_RATE_CAPS) {
+                var item = new CheckMenuItem(fps == 0 ? I18nConsts.frameRateUnlimitedItem.get()[0] : fps + " fps");
+                item.setSelected(HZ.get().getFrameRateCap() == fps);
+                item.setOnAction(e -> {
+                    HZ.get().setFrameRateCap(fps);
+                    ConfigManager.get().setFrameRateCap(fps);
+                    ls.forEach(i -> i.setSelected(i == item));
+                });
+                ls.add(item);
+            }
+            frameRateMenu.getItems().addAll(ls);
+        }
+        MenuItem stallReportItem = new MenuItem(I18nConsts.stallReportItem.get()[0]);
+        stallReportItem.setOnAction(e -> showStallReport());
         MenuItem exitItem = new MenuItem(I18nConsts.exitMenuItem.get()[0]);
         exitItem.setOnAction(e -> StageUtils.closePrimaryStage());
         if (Utils.isWindows()) {
-            systemMenu.getItems().addAll(showVersionsItem, showAboutItem, showIconOnTaskbarItem, coordinatesScaledItem, localeMenu, pluginMenu, exitItem);
+            systemMenu.getItems().addAll(showVersionsItem, showAboutItem, showIconOnTaskbarItem, coordinatesScaledItem, frameRateMenu, stallReportItem, localeMenu, pluginMenu, exitItem);
         } else {
-            systemMenu.getItems().addAll(showVersionsItem, showAboutItem, coordinatesScaledItem, localeMenu, pluginMenu, exitItem);
+            systemMenu.getItems().addAll(showVersionsItem, showAboutItem, coordinatesScaledItem, frameRateMenu, stallReportItem, localeMenu, pluginMenu, exitItem);
         }
         contextMenu.getItems().addAll(
             messageEnableItem,
@@ -453,6 +498,14 @@ public class App {
         calculateInputBoxPosition();
     }
 
+    private void updateAnimationVisibility() {
+        var stage = primaryStage.getStage();
+        boolean visible = stage.isShowing() && !stage.isIconified() &&
+            !Screen.getScreensForRectangle(stage.getX(), stage.getY(), stage.getWidth(), stage.getHeight()).isEmpty();
+        HZ.get().setVisible(visible);
+        StallWatchdog.get().setVisible(visible);
+    }
+
     public void ready() {
         // construct message stage
         messageStage = new MessageStage(primaryStage);
@@ -573,6 +626,7 @@ public class App {
         ex += primaryStage.getCutLeft();
         ey += primaryStage.getCutTop();
         primaryStage.scaleAt(ex, ey, ratio);
+        updateRenderScale();
         EventBus.publish(Events.PrimaryStageResized, null);
 
         primaryStage.saveConfig();
@@ -581,6 +635,11 @@ public class App {
         mouseCircleHide();
     }
 
+    // let images be downscaled to the size shown on screen
+    private void updateRenderScale() {
+        ImageManager.setRenderScale(primaryStage.getScaleRatio() * primaryStage.getScreen().getOutputScaleX());
+    }
+
     private boolean windowIsDraggable = true;
 
     private class DragWindowHandler extends net.cassite.desktop.chara.util.DragWindowHandler {
@@ -788,7 +847,7 @@ public class App {
             foo.cancel();
         }
         deregisterGlobalScreenAfterMouseLeaveScheduledFuture =
-            ThreadUtils.get().scheduleFX(() -> setGlobalScreen(false), 10, TimeUnit.SECONDS);
+            Clock.get().schedule(() -> setGlobalScreen(false), (int) TimeUnit.SECONDS.toMillis(10));
 
         // hide input box
         inputBox.hide();
@@ -982,6 +1041,12 @@ public class App {
             "");
     }
 
+    private void showStallReport() {
+        String summary = StallWatchdog.get().summary();
+        Logger.info("stall report\n" + summary);
+        Alert.alert(summary);
+    }
+
     private void showAbout() {
         StringBuilder sb = new StringBuilder("" +
             "Chara code license: GPLv2 with classpath exception\n" +
@@ -35,6 +35,13 @@ public class Global {
      * whether global screen enabled
      */
     public static final boolean globalScreenEnabled = Utils.isWindows(); // only enable for windows
+    /**
+     * the model file of a training run, or null if it's not a training run.<br>
+     * A training run loads all plugins and the model without asking, shows the first frames, then exits.
+     * It's used to record classes loaded on startup for the class data sharing archive.
+     * Set by <code>-Dchara.training=/path/to/xxx.model</code>
+     */
+    public static final String trainingModelFile = System.getProperty("chara.training");
 
     private static Boolean r18Features = null;
     private static Boolean debugFeatures = null;
@@ -2,6 +2,7 @@
 
 package net.cassite.desktop.chara;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -17,9 +18,12 @@ import javafx.scene.transform.Scale;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import net.cassite.desktop.chara.control.NativeMouseListenerUtils;
+import net.cassite.desktop.chara.graphic.HZ;
 import net.cassite.desktop.chara.graphic.UStage;
 import net.cassite.desktop.chara.i18n.I18nConsts;
 import net.cassite.desktop.chara.manager.ConfigManager;
+import net.cassite.desktop.chara.manager.ImageBatchLoader;
+import net.cassite.desktop.chara.manager.ImageManager;
 import net.cassite.desktop.chara.manager.ModelManager;
 import net.cassite.desktop.chara.manager.PluginManager;
 import net.cassite.desktop.chara.util.*;
@@ -33,8 +37,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 
@@ -78,8 +85,11 @@ public class Main extends Application {
             primaryStage.setScene(scene);
 
             // init
+            StartupReport.begin("initApp");
             App app = new App(primaryStage, scene, rootPane, rootScalePane, scale);
             app.init();
+            StartupReport.end("initApp");
+            ImageManager.logDedupReport();
 
             // stage config
             setName(primaryStage, rootPane);
@@ -93,6 +103,21 @@ public class Main extends Application {
             Platform.setImplicitExit(true);
 
             app.ready();
+            StallWatchdog.get().start();
+
+            // the first pulse after ready() lays out and renders the first frame
+            scene.addPostLayoutPulseListener(new Runnable() {
+                @Override
+                public void run() {
+                    scene.removePostLayoutPulseListener(this);
+                    StartupReport.count(ImageManager.getLoadStats());
+                    StartupReport.firstFrame();
+                    if (Global.trainingModelFile != null) {
+                        Logger.info("training run, exit in " + Consts.TRAINING_RUN_SECONDS + " seconds");
+                        Clock.get().schedule(Utils::shutdownProgram, (int) TimeUnit.SECONDS.toMillis(Consts.TRAINING_RUN_SECONDS));
+                    }
+                }
+            });
         }));
     }
 
@@ -113,15 +138,20 @@ public class Main extends Application {
     }
 
     private void preWork(Runnable cb) {
+        StartupReport.begin("launchDnsResolver");
         launchDnsResolver();
+        StartupReport.end("launchDnsResolver");
+        StartupReport.begin("registerNativeHook");
         registerNativeHook();
+        StartupReport.end("registerNativeHook");
         loadDefaultIcon();
-        loadPlugins(() ->
-            chooseModel(() ->
-                chooseModelFile(() ->
-                    loadModel(() ->
-                        loadCommonItemsFromModel(() ->
-                            loadImagesAndResources(Global.model.requiredImages(), Global.model.resourceHandlers(), cb)
+        timed("loadPlugins", this::loadPlugins, () ->
+            timed("chooseModel", this::chooseModel, () ->
+                timed("chooseModelFile", this::chooseModelFile, () ->
+                    timed("loadModel", this::loadModel, () ->
+                        timed("loadCommonItemsFromModel", this::loadCommonItemsFromModel, () ->
+                            timed("loadImagesAndResources", next ->
+                                loadImagesAndResources(Global.model.firstPaintImages(), Global.model.resourceHandlers(), next), cb)
                         )
                     )
                 )
@@ -129,6 +159,14 @@ public class Main extends Application {
         );
     }
 
+    private static void timed(String phase, Consumer<Runnable> step, Runnable cb) {
+        StartupReport.begin(phase);
+        step.accept(() -> {
+            StartupReport.end(phase);
+            cb.run();
+        });
+    }
+
     private void launchDnsResolver() {
         Resolver.getDefault();
     }
@@ -165,7 +203,11 @@ public class Main extends Application {
     }
 
     private void chooseModel(Runnable cb) {
-        ThreadUtils.get().submit(() -> {
+        if (Global.trainingModelFile != null) {
+            cb.run();
+            return;
+        }
+        ThreadUtils.get().submitBlocking(() -> {
             // get config files
             File configFileDir = new File(System.getProperty("user.home") + "/" + Consts.CONFIG_BASE_DIR);
             List<String> configs = null;
@@ -260,6 +302,11 @@ public class Main extends Application {
         ThreadUtils.get().runOnFX(() -> {
             // should run from UI thread
 
+            if (Global.trainingModelFile != null) {
+                Global.modelFilePath = new File(Global.trainingModelFile).getAbsolutePath();
+                cb.run();
+                return;
+            }
             if (Global.modelName != null) {
                 String modelFile = ConfigManager.get().getModelFile();
                 if (modelFile != null) {
@@ -296,7 +343,7 @@ public class Main extends Application {
     }
 
     private void loadModel(Runnable cb) {
-        ThreadUtils.get().submit(() -> {
+        ThreadUtils.get().submitBlocking(() -> {
             // should run from thread pool
 
             Global.model = ModelManager.load(Global.modelFilePath);
@@ -317,7 +364,7 @@ public class Main extends Application {
     }
 
     private void loadCommonItemsFromModel(Runnable cb) {
-        ThreadUtils.get().submit(() -> {
+        ThreadUtils.get().submitCPU(() -> {
             // should run from thread pool
 
             // icon
@@ -346,12 +393,6 @@ public class Main extends Application {
         allResourceRatioSum += requiredImages.size();
         final var finalAllResourceRatioSum = allResourceRatioSum;
 
-        List<ResourceHandler> imageAndResourceHandlers = new ArrayList<>(requiredImages.size() + resourceHandlers.size());
-        for (var imageStr : requiredImages) {
-            imageAndResourceHandlers.add(new ImageResourceHandler(imageStr));
-        }
-        imageAndResourceHandlers.addAll(resourceHandlers);
-
         ThreadUtils.get().runOnFX(() -> {
             // should run from UI thread
 
@@ -359,21 +400,78 @@ public class Main extends Application {
             loadingTup._1.show();
             Platform.setImplicitExit(true);
 
-            loadResources(loadingTup, imageAndResourceHandlers, finalAllResourceRatioSum, () ->
-                ThreadUtils.get().runOnFX(() -> {
-                    Platform.setImplicitExit(false);
-                    loadingTup._1.hide();
-                    cb.run();
-                }));
+            loadImages(loadingTup, requiredImages, finalAllResourceRatioSum, () -> {
+                streamImages();
+                loadResources(loadingTup, resourceHandlers, finalAllResourceRatioSum,
+                    requiredImages.size() / finalAllResourceRatioSum, () ->
+                        ThreadUtils.get().runOnFX(() -> {
+                            Platform.setImplicitExit(false);
+                            loadingTup._1.hide();
+                            cb.run();
+                        }));
+            });
+        });
+    }
+
+    // load the rest of the required images in background
+    private void streamImages() {
+        var remaining = new ArrayList<>(Global.model.requiredImages());
+        remaining.removeAll(new HashSet<>(Global.model.firstPaintImages()));
+        if (remaining.isEmpty()) {
+            return;
+        }
+        long begin = System.currentTimeMillis();
+        Logger.info("loading " + remaining.size() + " images for model " + Global.model.name() + " in background");
+        StartupReport.begin("streamImages");
+        ImageManager.stream(remaining, () -> {
+            Logger.info(remaining.size() + " images loaded in background, cost " + (System.currentTimeMillis() - begin) + "ms");
+            ImageManager.logDedupReport();
+            StartupReport.end("streamImages");
+            StartupReport.count(ImageManager.getLoadStats());
+            StartupReport.count(HZ.get().getLatenessStats());
+            StartupReport.count(ThreadUtils.get().getStats());
+            StartupReport.write();
         });
     }
 
+    private void loadImages(Tuple3<UStage, ProgressBar, Label> loadingTuple, List<String> requiredImages,
+                            double allResourceRatioSum, Runnable cb) {
+        // images are decoded on the cpu threads,
+        // the progress bar is refreshed at most once per pulse
+        var progressUpdater = new AnimationTimer() {
+            private ImageBatchLoader loader;
+
+            @Override
+            public void handle(long now) {
+                var loader = this.loader;
+                if (loader == null) {
+                    return;
+                }
+                loadingTuple._2.setProgress(loader.getCommittedCount() / allResourceRatioSum);
+                var last = loader.getLastCommitted();
+                if (last != null) {
+                    loadingTuple._3.setText(last);
+                }
+            }
+        };
+        progressUpdater.start();
+        Logger.info("loading " + requiredImages.size() + " images for model " + Global.model.name()
+            + " with " + ThreadUtils.get().getCPUParallelism() + " threads");
+        progressUpdater.loader = ImageManager.loadAll(requiredImages, () -> ThreadUtils.get().runOnFX(() -> {
+            progressUpdater.stop();
+            if (ThreadUtils.get().isShutdown()) {
+                return;
+            }
+            cb.run();
+        }));
+    }
+
     private void loadResources(Tuple3<UStage, ProgressBar, Label> loadingTuple, List<ResourceHandler> resourceHandlers,
-                               double allResourceRatioSum, Runnable cb) {
+                               double allResourceRatioSum, double initialProcess, Runnable cb) {
         ThreadUtils.get().runOnFX(() ->
             recursiveLoadResources(
                 resourceHandlers.iterator(), allResourceRatioSum,
-                loadingTuple, 0,
+                loadingTuple, initialProcess,
                 cb));
     }
 
@@ -392,7 +490,9 @@ public class Main extends Application {
         var handler = iterator.next();
         loadingTuple._3.setText(handler.entrySuffix);
 
-        ThreadUtils.get().submit(() -> {
+        // handlers may block on IO
+        ThreadUtils.get().submitBlocking(() -> {
+            long begin = System.currentTimeMillis();
             String entry = Global.model.name() + "/" + handler.entrySuffix;
             InputStream inputStream = ModelManager.getEntryFromModel(entry);
             if (inputStream == null) {
@@ -404,6 +504,7 @@ public class Main extends Application {
                 handler.handler.accept(inputStream, new Callback<>() {
                     @Override
                     protected void onSucceeded(Void aVoid) {
+                        StartupReport.resource(entry, begin);
                         try {
                             inputStream.close();
                         } catch (IOException ignore) {
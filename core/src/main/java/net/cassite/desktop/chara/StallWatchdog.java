@@ -0,0 +1,286 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara;
+
+import javafx.application.Platform;
+import net.cassite.desktop.chara.util.Logger;
+import vproxybase.selector.SelectorEventLoop;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Detect stalls of JavaFX thread, io threads and timer threads.<br>
+ * A probe is posted to each thread as soon as the previous one has run, and the lag between posting and running it is measured.
+ * When a probe waits longer than the threshold, the stack of the stalled thread is sampled into a ring buffer,
+ * so that the blocking code can be found later from {@link #summary()} or the log.<br>
+ * Probing is paused while the character is hidden, see {@link #setVisible(boolean)}.<br>
+ * The threshold in millis can be set with system property <code>chara.watchdog.threshold</code>, 0 to disable.
+ */
+public class StallWatchdog {
+    private static final StallWatchdog instance = new StallWatchdog();
+
+    public static final int DEFAULT_THRESHOLD = 200;
+    private static final int MAX_STALLS = 16;
+    private static final int SUMMARY_FRAMES = 3;
+
+    private final int threshold;
+    private final List<Target> targets = new ArrayList<>();
+    private final Stall[] stalls = new Stall[MAX_STALLS]; // guarded by stalls
+    private int nextStall = 0; // guarded by stalls
+    private long stallCount = 0; // guarded by stalls
+    private volatile Thread thread;
+    private boolean visible = true; // guarded by this
+
+    private StallWatchdog() {
+        threshold = Math.max(0, Integer.getInteger("chara.watchdog.threshold", DEFAULT_THRESHOLD));
+        targets.add(new Target("fx", Platform::runLater, Platform.isFxApplicationThread() ? Thread.currentThread() : null));
+        // one target for each loop, so that the sampled thread is always the stalled one
+        addLoops("io", ThreadUtils.get().ioLoops());
+        addLoops("timer", ThreadUtils.get().timerLoops());
+    }
+
+    private void addLoops(String name, List<SelectorEventLoop> loops) {
+        for (int i = 0; i < loops.size(); ++i) {
+            SelectorEventLoop loop = loops.get(i);
+            targets.add(new Target(name + "-" + i, loop::runOnLoop, null));
+        }
+    }
+
+    public static StallWatchdog get() {
+        return instance;
+    }
+
+    /**
+     * Start watching, nothing happens if it's already started or disabled
+     */
+    public synchronized void start() {
+        if (thread != null || threshold == 0) {
+            return;
+        }
+        Thread t = new Thread(this::loop, "stall-watchdog");
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+        Logger.info("stall watchdog started, threshold " + threshold + "ms");
+    }
+
+    /**
+     * Stop watching, and log the summary
+     */
+    public synchronized void stop() {
+        Thread t = thread;
+        if (t == null) {
+            return;
+        }
+        thread = null;
+        t.interrupt();
+        Logger.info("stall watchdog stopped\n" + summary());
+    }
+
+    /**
+     * Pause probing when the character is not visible, the same as animations, so that the program does not wake up
+     *
+     * @param visible whether the character is visible
+     */
+    public synchronized void setVisible(boolean visible) {
+        this.visible = visible;
+        notifyAll();
+    }
+
+    private void loop() {
+        // check twice within the threshold, so that a stall is sampled while it's still happening
+        int interval = Math.max(1, threshold / 2);
+        try {
+            while (thread == Thread.currentThread() && !ThreadUtils.get().isShutdown()) {
+                synchronized (this) {
+                    while (!visible) {
+                        wait();
+                    }
+                }
+                for (Target target : targets) {
+                    long now = System.nanoTime();
+                    target.check(now);
+                    target.probe(now);
+                }
+                //noinspection BusyWait
+                Thread.sleep(interval);
+            }
+        } catch (InterruptedException ignore) {
+            // stopped
+        }
+    }
+
+    private void record(Stall stall) {
+        synchronized (stalls) {
+            stalls[nextStall] = stall;
+            nextStall = (nextStall + 1) % MAX_STALLS;
+            ++stallCount;
+        }
+    }
+
+    private List<Stall> recentStalls() {
+        List<Stall> ret = new ArrayList<>(MAX_STALLS);
+        synchronized (stalls) {
+            for (int i = 0; i < MAX_STALLS; ++i) {
+                // from the newest to the oldest
+                Stall s = stalls[(nextStall - 1 - i + MAX_STALLS) % MAX_STALLS];
+                if (s == null) {
+                    break;
+                }
+                ret.add(s);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Get a short text describing lags of the threads and recent stalls
+     *
+     * @return summary text
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        if (thread == null) {
+            sb.append("watchdog is not running\n");
+        }
+        for (Target target : targets) {
+            target.appendStats(sb);
+        }
+        long count;
+        synchronized (stalls) {
+            count = stallCount;
+        }
+        sb.append("stalls over ").append(threshold).append("ms: ").append(count);
+        for (Stall stall : recentStalls()) {
+            sb.append("\n");
+            stall.append(sb, SUMMARY_FRAMES);
+        }
+        return sb.toString();
+    }
+
+    private class Target {
+        final String name;
+        final Consumer<Runnable> poster;
+        // the following fields are written by the watchdog thread and the target thread,
+        // and are guarded by this
+        Thread targetThread;
+        long postedNanos = -1;
+        Stall stall;
+        long probes = 0;
+        long totalLagNanos = 0;
+        long maxLagNanos = 0;
+
+        Target(String name, Consumer<Runnable> poster, Thread targetThread) {
+            this.name = name;
+            this.poster = poster;
+            this.targetThread = targetThread;
+            if (targetThread == null) {
+                // record the thread before the first probe, otherwise a stall during the first probe cannot be sampled
+                try {
+                    poster.accept(() -> {
+                        synchronized (this) {
+                            if (this.targetThread == null) {
+                                this.targetThread = Thread.currentThread();
+                            }
+                        }
+                    });
+                } catch (RuntimeException ignore) {
+                    // the thread may be shutting down
+                }
+            }
+        }
+
+        void probe(long now) {
+            synchronized (this) {
+                if (postedNanos != -1) {
+                    return; // the last probe is still waiting, keep checking it
+                }
+                postedNanos = now;
+            }
+            try {
+                poster.accept(() -> probed(now));
+            } catch (RuntimeException e) {
+                // the thread may be shutting down
+                synchronized (this) {
+                    postedNanos = -1;
+                }
+            }
+        }
+
+        void check(long now) {
+            Stall stalled;
+            synchronized (this) {
+                if (postedNanos == -1 || stall != null || targetThread == null || now - postedNanos <= threshold * 1_000_000L) {
+                    return;
+                }
+                stall = new Stall(name, targetThread.getName(), System.currentTimeMillis(), targetThread.getStackTrace());
+                stalled = stall;
+            }
+            record(stalled);
+            Logger.warn(name + " thread is stalled for more than " + threshold + "ms\n" + stalled.stackString(Integer.MAX_VALUE));
+        }
+
+        void probed(long posted) {
+            long now = System.nanoTime();
+            long lag = now - posted;
+            Stall finished;
+            synchronized (this) {
+                targetThread = Thread.currentThread();
+                postedNanos = -1;
+                ++probes;
+                totalLagNanos += lag;
+                maxLagNanos = Math.max(maxLagNanos, lag);
+                finished = stall;
+                stall = null;
+            }
+            if (finished != null) {
+                finished.durationMillis = lag / 1_000_000;
+                Logger.warn(name + " thread recovered after stalling for " + finished.durationMillis + "ms");
+            }
+        }
+
+        synchronized void appendStats(StringBuilder sb) {
+            sb.append(name).append(": probes ").append(probes);
+            if (probes != 0) {
+                sb.append(", avg lag ").append(totalLagNanos / probes / 1_000).append("us")
+                    .append(", max lag ").append(maxLagNanos / 1_000_000).append("ms");
+            }
+            sb.append("\n");
+        }
+    }
+
+    private static class Stall {
+        final String target;
+        final String threadName;
+        final long timestamp;
+        final StackTraceElement[] stack;
+        volatile long durationMillis = -1; // -1 when still stalled
+
+        Stall(String target, String threadName, long timestamp, StackTraceElement[] stack) {
+            this.target = target;
+            this.threadName = threadName;
+            this.timestamp = timestamp;
+            this.stack = stack;
+        }
+
+        String stackString(int maxFrames) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < stack.length && i < maxFrames; ++i) {
+                sb.append("\tat ").append(stack[i]).append("\n");
+            }
+            return sb.toString();
+        }
+
+        void append(StringBuilder sb, int maxFrames) {
+            sb.append(target).append(" (").append(threadName).append(") at ").append(timestamp).append(": ");
+            if (durationMillis == -1) {
+                sb.append("still stalled");
+            } else {
+                sb.append(durationMillis).append("ms");
+            }
+            sb.append("\n").append(stackString(maxFrames));
+        }
+    }
+}
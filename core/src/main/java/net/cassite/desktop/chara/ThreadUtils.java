@@ -3,31 +3,141 @@
 package net.cassite.desktop.chara;
 
 import javafx.application.Platform;
+import net.cassite.desktop.chara.util.Logger;
 import net.cassite.desktop.chara.util.Scheduled;
 import vproxybase.component.elgroup.EventLoopGroup;
 import vproxybase.connection.NetEventLoop;
-import vproxybase.util.Logger;
+import vproxybase.selector.SelectorEventLoop;
 import vproxybase.util.exception.AlreadyExistException;
 import vproxybase.util.exception.ClosedException;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Threads of the program, there are four kinds of threads:<br>
+ * cpu threads: a work-stealing pool for loading, decoding and parsing, see {@link #submitCPU(Runnable)}<br>
+ * io threads: event loops for network, see {@link #getLoop()}, {@link #submitIO(Runnable)} and {@link #submit(Runnable)}<br>
+ * timer threads: event loops only for timers, see {@link #schedule(Runnable, int, TimeUnit)}<br>
+ * blocking threads: virtual threads if supported by the jdk, otherwise a bounded pool, see {@link #submitBlocking(Runnable)}<br>
+ * Thread counts can be set with system properties <code>chara.threads.cpu</code>, <code>chara.threads.io</code>,
+ * <code>chara.threads.timer</code> and <code>chara.threads.blocking</code> (only used without virtual threads).
+ * Queue depths can be retrieved from {@link #getStats()}.
+ */
 public class ThreadUtils {
     private static final ThreadUtils instance = new ThreadUtils();
 
-    private final EventLoopGroup nonblockingThreads;
+    private final EventLoopGroup ioThreads;
+    private final int ioThreadCount;
+    private final EventLoopGroup timerThreads;
+    // every loop of the groups, used by the watchdog
+    private final List<SelectorEventLoop> ioLoops;
+    private final List<SelectorEventLoop> timerLoops;
+    private final int timerThreadCount;
+    private final int cpuParallelism;
+    private final ForkJoinPool cpuThreads;
+    private final boolean virtualBlockingThreads;
+    private final ExecutorService blockingThreads;
+
+    private final AtomicLong cpuSubmitted = new AtomicLong();
+    private final AtomicLong ioSubmitted = new AtomicLong();
+    private final AtomicInteger ioPending = new AtomicInteger();
+    private final AtomicInteger ioMaxPending = new AtomicInteger();
+    private final AtomicLong timerScheduled = new AtomicLong();
+    private final AtomicLong timerFired = new AtomicLong();
+    private final AtomicLong timerMaxLag = new AtomicLong();
+    private final AtomicLong blockingSubmitted = new AtomicLong();
+    private final AtomicInteger blockingRunning = new AtomicInteger();
+    private final AtomicInteger blockingMaxRunning = new AtomicInteger();
 
     private ThreadUtils() {
-        nonblockingThreads = new EventLoopGroup("nonblocking-threads");
-        for (int i = 0; i < 1; ++i) { // we only add one thread for now
+        ioThreadCount = threadCount("chara.threads.io", 1);
+        ioThreads = buildEventLoopGroup("io-thread", ioThreadCount);
+        ioLoops = loopsOf(ioThreads, ioThreadCount);
+        timerThreadCount = threadCount("chara.threads.timer", 1);
+        timerThreads = buildEventLoopGroup("timer-thread", timerThreadCount);
+        timerLoops = loopsOf(timerThreads, timerThreadCount);
+        cpuParallelism = threadCount("chara.threads.cpu", Runtime.getRuntime().availableProcessors());
+        AtomicInteger cpuThreadIndex = new AtomicInteger(0);
+        // async mode: tasks are independent and never joined, so run them in submission order
+        cpuThreads = new ForkJoinPool(cpuParallelism, pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("cpu-thread-" + cpuThreadIndex.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }, (t, e) -> Logger.warn("task failed on " + t.getName(), e), true);
+        ExecutorService virtual = virtualThreadExecutor();
+        virtualBlockingThreads = virtual != null;
+        if (virtual == null) {
+            int max = threadCount("chara.threads.blocking", 16);
+            AtomicInteger blockingThreadIndex = new AtomicInteger(0);
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(max, max, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "blocking-thread-" + blockingThreadIndex.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            });
+            pool.allowCoreThreadTimeOut(true);
+            blockingThreads = pool;
+        } else {
+            blockingThreads = virtual;
+        }
+        Logger.info("blocking threads: " + (virtualBlockingThreads ? "virtual" : "platform"));
+    }
+
+    // the program is compiled with jdk 11, so virtual threads can only be created with reflection
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "blocking-thread-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // not supported, or still a preview feature and not enabled
+            assert Logger.debug("virtual threads are not available: " + e);
+            return null;
+        }
+    }
+
+    private static int threadCount(String property, int defaultValue) {
+        return Math.max(1, Integer.getInteger(property, defaultValue));
+    }
+
+    // the group hands out the loops in turn, so each loop is retrieved once
+    private static List<SelectorEventLoop> loopsOf(EventLoopGroup group, int count) {
+        List<SelectorEventLoop> ret = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            ret.add(group.next().getSelectorEventLoop());
+        }
+        return Collections.unmodifiableList(ret);
+    }
+
+    private static EventLoopGroup buildEventLoopGroup(String name, int count) {
+        EventLoopGroup group = new EventLoopGroup(name + "s");
+        for (int i = 0; i < count; ++i) {
             try {
-                nonblockingThreads.add("nonblocking-thread-" + i);
+                group.add(name + "-" + i);
             } catch (AlreadyExistException | IOException | ClosedException e) {
-                Logger.shouldNotHappen("adding nonblocking thread failed", e);
+                vproxybase.util.Logger.shouldNotHappen("adding " + name + " failed", e);
                 throw new RuntimeException(e);
             }
         }
+        return group;
     }
 
     /**
@@ -46,7 +156,10 @@ public class ThreadUtils {
      */
     public void shutdownNow() {
         isShutdown = true;
-        nonblockingThreads.close();
+        ioThreads.close();
+        timerThreads.close();
+        cpuThreads.shutdownNow();
+        blockingThreads.shutdownNow();
     }
 
     /**
@@ -59,17 +172,28 @@ public class ThreadUtils {
     }
 
     /**
-     * Retrieve an event loop<br>
+     * Retrieve an event loop for network<br>
      * There might be multiple event loops in the instance, so the retrieved loop may be different between different calls.
      *
      * @return event loop
      */
     public NetEventLoop getLoop() {
-        return nonblockingThreads.next();
+        return ioThreads.next();
+    }
+
+    // used by the watchdog to probe the io threads
+    List<SelectorEventLoop> ioLoops() {
+        return ioLoops;
+    }
+
+    // used by the watchdog to probe the timer threads
+    List<SelectorEventLoop> timerLoops() {
+        return timerLoops;
     }
 
     /**
-     * Execute the runnable after specific delay
+     * Execute the runnable after specific delay<br>
+     * The runnable is called on a timer thread, so it should only do light work or hand over to other threads.
      *
      * @param runnable task to run
      * @param delay    time to delay
@@ -81,16 +205,23 @@ public class ThreadUtils {
             return null;
         }
         int millis = (int) TimeUnit.MILLISECONDS.convert(delay, unit);
+        long expected = System.currentTimeMillis() + millis;
+        timerScheduled.incrementAndGet();
         return new Scheduled(
-            nonblockingThreads.next().getSelectorEventLoop(),
+            timerThreads.next().getSelectorEventLoop(),
             millis,
             -1,
-            runnable
+            () -> {
+                fired(expected);
+                runnable.run();
+            }
         );
     }
 
     /**
-     * Execute the runnable on <code>JavaFX</code> thread after specific delay
+     * Execute the runnable on <code>JavaFX</code> thread after specific delay.<br>
+     * Consider {@link net.cassite.desktop.chara.util.Clock#schedule(Runnable, int)},
+     * which does not hop from the event loop for each task.
      *
      * @param runnable task to run
      * @param delay    time to delay
@@ -102,7 +233,8 @@ public class ThreadUtils {
     }
 
     /**
-     * Periodically execute the runnable
+     * Periodically execute the runnable<br>
+     * The runnable is called on a timer thread, so it should only do light work or hand over to other threads.
      *
      * @param runnable     task to run
      * @param initialDelay delay time before the task is ran for the first time
@@ -116,16 +248,22 @@ public class ThreadUtils {
         }
         int initialMillis = (int) TimeUnit.MILLISECONDS.convert(initialDelay, unit);
         int periodMillis = (int) TimeUnit.MILLISECONDS.convert(period, unit);
+        timerScheduled.incrementAndGet();
         return new Scheduled(
-            nonblockingThreads.next().getSelectorEventLoop(),
+            timerThreads.next().getSelectorEventLoop(),
             initialMillis,
             periodMillis,
-            runnable
+            () -> {
+                timerFired.incrementAndGet();
+                runnable.run();
+            }
         );
     }
 
     /**
-     * Periodically execute the runnable on <code>JavaFX</code> thread
+     * Periodically execute the runnable on <code>JavaFX</code> thread.<br>
+     * Consider {@link net.cassite.desktop.chara.util.Clock#scheduleAtFixedRate(Runnable, int, int)},
+     * which does not hop from the event loop for each run.
      *
      * @param runnable     task to run
      * @param initialDelay delay time before the task is ran for the first time
@@ -137,16 +275,114 @@ public class ThreadUtils {
         return scheduleAtFixedRate(() -> Platform.runLater(runnable), initialDelay, period, unit);
     }
 
+    private void fired(long expected) {
+        timerFired.incrementAndGet();
+        long lag = System.currentTimeMillis() - expected;
+        timerMaxLag.accumulateAndGet(lag, Math::max);
+    }
+
     /**
-     * Execute the runnable on event loop thread
+     * Execute the runnable on event loop thread, same as {@link #submitIO(Runnable)}.<br>
+     * Use {@link #submitCPU(Runnable)} or {@link #submitBlocking(Runnable)} for heavy or blocking work.
      *
      * @param runnable task to run
      */
     public void submit(Runnable runnable) {
+        submitIO(runnable);
+    }
+
+    /**
+     * Execute the runnable on one of the cpu threads.<br>
+     * Use this for cpu heavy tasks such as image decoding, so that network and timers will not be blocked.
+     *
+     * @param runnable task to run
+     */
+    public void submitCPU(Runnable runnable) {
         if (isShutdown()) {
             return;
         }
-        nonblockingThreads.next().getSelectorEventLoop().runOnLoop(runnable);
+        cpuSubmitted.incrementAndGet();
+        cpuThreads.execute(runnable);
+    }
+
+    /**
+     * Execute the runnable on a thread which is allowed to block, e.g. for file IO or waiting for processes.<br>
+     * Virtual threads are used if the jdk supports them, so it's cheap to run many blocking tasks at the same time.
+     *
+     * @param runnable task to run
+     * @return the future to cancel (interrupt) the task, or null if the threads are shut down
+     */
+    public Future<?> submitBlocking(Runnable runnable) {
+        if (isShutdown()) {
+            return null;
+        }
+        blockingSubmitted.incrementAndGet();
+        return blockingThreads.submit(() -> {
+            int running = blockingRunning.incrementAndGet();
+            blockingMaxRunning.accumulateAndGet(running, Math::max);
+            try {
+                runnable.run();
+            } catch (Throwable t) {
+                Logger.warn("task failed on " + Thread.currentThread().getName(), t);
+            } finally {
+                blockingRunning.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Execute the runnable on a network event loop thread.<br>
+     * The runnable should not block, use {@link #submitCPU(Runnable)} for heavy computing and {@link #submitBlocking(Runnable)} for blocking calls.
+     *
+     * @param runnable task to run
+     */
+    public void submitIO(Runnable runnable) {
+        if (isShutdown()) {
+            return;
+        }
+        ioSubmitted.incrementAndGet();
+        int pending = ioPending.incrementAndGet();
+        ioMaxPending.accumulateAndGet(pending, Math::max);
+        ioThreads.next().getSelectorEventLoop().runOnLoop(() -> {
+            ioPending.decrementAndGet();
+            runnable.run();
+        });
+    }
+
+    /**
+     * Get the count of cpu threads
+     *
+     * @return cpu thread count
+     */
+    public int getCPUParallelism() {
+        return cpuParallelism;
+    }
+
+    /**
+     * Get counters of the threads, e.g. for the startup report
+     *
+     * @return name to value
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> ret = new LinkedHashMap<>();
+        ret.put("cpu_threads", (long) cpuParallelism);
+        ret.put("cpu_submitted", cpuSubmitted.get());
+        ret.put("cpu_queued", cpuThreads.getQueuedSubmissionCount() + cpuThreads.getQueuedTaskCount());
+        ret.put("cpu_active", (long) cpuThreads.getActiveThreadCount());
+        ret.put("cpu_steals", cpuThreads.getStealCount());
+        ret.put("io_threads", (long) ioThreadCount);
+        ret.put("io_submitted", ioSubmitted.get());
+        ret.put("io_pending", (long) ioPending.get());
+        ret.put("io_max_pending", (long) ioMaxPending.get());
+        ret.put("timer_threads", (long) timerThreadCount);
+        ret.put("timer_scheduled", timerScheduled.get());
+        ret.put("timer_fired", timerFired.get());
+        ret.put("timer_max_lag_millis", timerMaxLag.get());
+        ret.put("blocking_virtual", virtualBlockingThreads ? 1L : 0L);
+        ret.put("blocking_submitted", blockingSubmitted.get());
+        ret.put("blocking_running", (long) blockingRunning.get());
+        ret.put("blocking_max_running", (long) blockingMaxRunning.get());
+        return ret;
     }
 
     /**
@@ -3,10 +3,14 @@
 package net.cassite.desktop.chara.graphic;
 
 import javafx.scene.image.ImageView;
+import net.cassite.desktop.chara.Global;
+import net.cassite.desktop.chara.manager.FrameCanvas;
+import net.cassite.desktop.chara.manager.FrameGroup;
 import net.cassite.desktop.chara.manager.ImageManager;
+import net.cassite.desktop.chara.util.Logger;
 import net.cassite.desktop.chara.util.XImage;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -18,7 +22,13 @@ public class Anima {
     public static final double DEFAULT_FPS = 45;
 
     private final XImage defaultImage;
-    private final List<XImage> animationImages;
+    private final List<String> animationImages;
+    private final FrameGroup group;
+    private boolean pinned = false;
+    private final FrameCanvas canvas = new FrameCanvas();
+    private int currentFrame = -1;
+    // fps to play with after the frames are loaded, 0 if not requested
+    private double pendingFps = 0;
     private final ImageView imageView;
     private final FrameBasedAnimationHelper helper;
 
@@ -34,13 +44,15 @@ public class Anima {
      * @see ImageManager#load(String)
      */
     public Anima(String defaultImage, String... animationImages) {
-        this.defaultImage = ImageManager.load(defaultImage);
+        // the default image is shown before the rest of the images are streamed, see Model#firstPaintImages()
+        assert Global.model == null || Global.model.firstPaintImages().contains(defaultImage)
+            : "default image " + defaultImage + " is not in firstPaintImages() of the model";
+        // the default image is shown most of the time, keep it out of the sheets
+        this.defaultImage = ImageManager.loadStandalone(defaultImage);
 
-        List<XImage> images = new ArrayList<>(animationImages.length);
-        for (String name : animationImages) {
-            images.add(ImageManager.load(name));
-        }
-        this.animationImages = Collections.unmodifiableList(images);
+        // render all frames of the animation from a few large sheets
+        this.animationImages = Collections.unmodifiableList(Arrays.asList(animationImages));
+        this.group = ImageManager.atlas(this.animationImages);
         this.imageView = new ImageView();
 
         this.helper = new FrameBasedAnimationHelper(
@@ -48,6 +60,9 @@ public class Anima {
             this::update);
 
         init();
+
+        // use the downscaled images when ready
+        ImageLevelWatch.bind(imageView, () -> showFrame(currentFrame));
     }
 
     private void init() {
@@ -65,17 +80,53 @@ public class Anima {
      * @return <code>this</code>
      */
     public Anima resetTo(int frame) {
+        pendingFps = 0;
         helper.resetTo(frame);
         if (frame == -1) {
-            setImage(defaultImage);
+            showFrame(-1);
+            unpin();
         } else {
-            setImage(animationImages.get(frame));
+            pin();
+            showFrame(frame);
+            if (!group.isReady()) {
+                // show the frame when the evicted frames are reloaded
+                group.whenReady(() -> showFrame(currentFrame));
+            }
         }
         return this;
     }
 
+    private void showFrame(int frame) {
+        currentFrame = frame;
+        if (frame == -1 || !group.isReady()) {
+            // frames still being loaded in background are not shown
+            setImage(ImageManager.forDisplay(defaultImage));
+        } else {
+            setImage(ImageManager.render(animationImages.get(frame), canvas));
+        }
+    }
+
+    // animation frames are kept in memory while any of them is shown
+    private void pin() {
+        if (pinned) {
+            return;
+        }
+        pinned = true;
+        group.pin();
+    }
+
+    private void unpin() {
+        if (!pinned) {
+            return;
+        }
+        pinned = false;
+        group.unpin();
+        canvas.release();
+    }
+
     private void setImage(XImage image) {
         this.imageView.setImage(image.image);
+        this.imageView.setViewport(image.viewport);
         this.imageView.setFitWidth(image.getWidth());
         this.imageView.setFitHeight(image.getHeight());
         this.imageView.setX(image.x);
@@ -104,11 +155,28 @@ public class Anima {
     }
 
     /**
-     * Begin to animate. If it's already playing, the fps will be updated.
+     * Begin to animate. If it's already playing, the fps will be updated.<br>
+     * If the frames are still being loaded in background or were evicted, the animation starts after they are loaded.
      *
      * @param fps fps
      */
     public void play(double fps) {
+        // reload the frames in background if evicted
+        pin();
+        if (!group.isReady()) {
+            if (pendingFps == 0) {
+                assert Logger.debug("waiting for " + group + " to be loaded");
+                group.whenReady(() -> {
+                    double f = pendingFps;
+                    pendingFps = 0;
+                    if (f != 0) {
+                        play(f);
+                    }
+                });
+            }
+            pendingFps = fps;
+            return;
+        }
         helper.play(fps);
     }
 
@@ -120,7 +188,7 @@ public class Anima {
         if (fps == 0) {
             fps = DEFAULT_FPS;
         }
-        helper.play(fps);
+        play(fps);
     }
 
     /**
@@ -129,12 +197,13 @@ public class Anima {
      * @return <code>this</code>
      */
     public Anima pause() {
+        pendingFps = 0;
         helper.pause();
         return this;
     }
 
     private void update(int frames) {
-        setImage(animationImages.get(frames));
+        showFrame(frames);
     }
 
     /**
@@ -166,6 +235,17 @@ public class Anima {
         return this;
     }
 
+    /**
+     * Set priority for the animation, ambient animations should use {@link UpdatePriority#LOW}
+     *
+     * @param priority priority
+     * @return <code>this</code>
+     */
+    public Anima setPriority(UpdatePriority priority) {
+        helper.setPriority(priority);
+        return this;
+    }
+
     /**
      * Set fps for the animation
      *
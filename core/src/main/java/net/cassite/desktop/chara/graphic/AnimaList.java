@@ -72,6 +72,20 @@ public class AnimaList {
         anima.resetTo(0).setPauseCallbackOnce(this::recursivePlay).play();
     }
 
+    /**
+     * Set priority for all {@link Anima}s in the list
+     *
+     * @param priority priority
+     * @return <code>this</code>
+     * @see Anima#setPriority(UpdatePriority)
+     */
+    public AnimaList setPriority(UpdatePriority priority) {
+        for (Anima anima : animaList) {
+            anima.setPriority(priority);
+        }
+        return this;
+    }
+
     /**
      * Set the callback function which will be called after all {@link Anima}s are played
      *
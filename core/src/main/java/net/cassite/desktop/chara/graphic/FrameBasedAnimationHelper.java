@@ -19,7 +19,8 @@ public class FrameBasedAnimationHelper implements Updatable {
     private boolean playing;
     private int currentFrame;
     private int endFrame;
-    private long lastUpdateMillis;
+    private double lastUpdateMillis;
+    private UpdatePriority priority = UpdatePriority.NORMAL;
 
     private Runnable pauseCallbackOnce;
 
@@ -117,6 +118,17 @@ public class FrameBasedAnimationHelper implements Updatable {
         return this;
     }
 
+    /**
+     * Set priority of this object, which takes effect when it starts playing next time
+     *
+     * @param priority priority
+     * @return <code>this</code>
+     */
+    public FrameBasedAnimationHelper setPriority(UpdatePriority priority) {
+        this.priority = priority;
+        return this;
+    }
+
     /**
      * Start to play with specified fps. If it's already started, the fps will be reset to the specified value.
      *
@@ -153,6 +165,25 @@ public class FrameBasedAnimationHelper implements Updatable {
         return this;
     }
 
+    // frames used to be advanced only on the 10ms ticks, so the period is rounded up to a multiple of HZ.UNIT
+    // to keep the speed all animations are tuned with, e.g. 45 fps actually plays every 30ms
+    private int framePeriodMillis() {
+        return (int) Math.ceil(1000 / fps / HZ.UNIT - 1e-9) * HZ.UNIT;
+    }
+
+    @Override
+    public double fps() {
+        if (fps <= 0) {
+            return fps;
+        }
+        return 1000.0 / framePeriodMillis();
+    }
+
+    @Override
+    public UpdatePriority priority() {
+        return priority;
+    }
+
     @Override
     public void update(long current) {
         if (!playing) {
@@ -161,8 +192,11 @@ public class FrameBasedAnimationHelper implements Updatable {
         }
         int frames = 0;
         if (lastUpdateMillis != -1) {
-            long delta = current - lastUpdateMillis;
-            frames = (int) (delta / (1000 / fps));
+            if (fps <= 0) {
+                return;
+            }
+            double delta = current - lastUpdateMillis;
+            frames = (int) (delta / framePeriodMillis());
             if (frames == 0) {
                 return;
             }
@@ -170,7 +204,12 @@ public class FrameBasedAnimationHelper implements Updatable {
 
         // update
 
-        lastUpdateMillis = current;
+        if (lastUpdateMillis == -1 || frames > 1) {
+            lastUpdateMillis = current;
+        } else {
+            // keep the remainder, so that the frame rate does not depend on the tick rate of HZ
+            lastUpdateMillis += framePeriodMillis();
+        }
 
         frames = currentFrame + frames;
         if (frames > endFrame) {
@@ -2,40 +2,69 @@
 
 package net.cassite.desktop.chara.graphic;
 
-import javafx.application.Platform;
-import net.cassite.desktop.chara.ThreadUtils;
+import net.cassite.desktop.chara.util.Clock;
 import net.cassite.desktop.chara.util.Logger;
+import net.cassite.desktop.chara.util.Scheduled;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 
+/**
+ * The animation ticker.<br>
+ * It's driven by the pulse of {@link Clock}, which is the JavaFX pulse by default, and runs only while there are registered {@link Updatable}s
+ * and the character is visible.
+ * Ticks are generated by accumulating the time between pulses, so one pulse may run zero or several ticks.
+ * The interval between ticks is a multiple of {@link #UNIT} millis,
+ * which is the longest one satisfying {@link Updatable#fps()} of all registered objects,
+ * and is not shorter than the one required by the frame rate cap.
+ * When ticks are far apart, the ticker sleeps between them instead of waiting for every pulse.<br>
+ * On each tick, objects are called in the order of their {@link UpdatePriority}.
+ * When the time budget of the tick is used up, the remaining objects which are not {@link UpdatePriority#HIGH}
+ * are deferred to the next tick, and they are called first among objects of the same priority on that tick.
+ * How late the deferred objects are can be retrieved from {@link #getLateness(UpdatePriority)}.<br>
+ * All {@link Updatable}s are called on the thread of the clock, which is JavaFX thread by default.
+ */
 public class HZ {
     public static final int UNIT = 10;
-    private static final Object _VALUE_ = new Object();
+    public static final double MAX_FPS = 1000.0 / UNIT;
+    // ticks exceeding this count in one pulse are dropped, e.g. when the system wakes up from sleeping
+    private static final int MAX_TICKS_PER_PULSE = 10;
+    // sleep between ticks instead of waiting for pulses when the interval is not shorter than this value
+    private static final int SLEEP_THRESHOLD = 40;
+    public static final int DEFAULT_TICK_BUDGET = 4;
+    private static final UpdatePriority[] PRIORITIES = UpdatePriority.values();
     private static final HZ instance = new HZ();
 
-    private final ConcurrentHashMap<Updatable, Object> registered = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Updatable, Entry> registered = new ConcurrentHashMap<>();
+    private final Lateness[] lateness = new Lateness[PRIORITIES.length];
 
-    private volatile boolean running = false;
+    private volatile boolean active = false;
+    private volatile boolean registeredChanged = true;
+    private volatile long tickBudgetNanos = DEFAULT_TICK_BUDGET * 1_000_000L;
+    private volatile boolean sleeping = false;
+    private volatile int frameRateCap = 0;
+    // the following fields are only accessed on the thread of the clock
+    private boolean visible = true;
+    private Clock clock;
+    private Clock.Pulse timer;
+    private Scheduled wakeup;
+    private int interval = UNIT;
+    private long lastPulseNanos;
+    private long accumulatedNanos;
+    private long tickMillis;
+    private Entry[][] ordered = new Entry[PRIORITIES.length][0];
+    // index of the entry to be called first for each priority
+    private final int[] cursor = new int[PRIORITIES.length];
 
     private HZ() {
-        ThreadUtils.get().scheduleAtFixedRate(() -> {
-            if (running) {
-                assert Logger.debug("frame dropped");
-                return;
-            }
-            if (registered.isEmpty()) {
-                return;
-            }
-            running = true;
-            Platform.runLater(() -> {
-                long current = System.currentTimeMillis();
-                for (Updatable up : registered.keySet()) {
-                    up.update(current);
-                }
-                running = false;
-            });
-        }, 0, UNIT, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < lateness.length; ++i) {
+            lateness[i] = new Lateness();
+        }
     }
 
     /**
@@ -53,7 +82,14 @@ public class HZ {
      * @param up callback function
      */
     public void register(Updatable up) {
-        registered.put(up, _VALUE_);
+        registered.computeIfAbsent(up, Entry::new);
+        registeredChanged = true;
+        if (!active) {
+            Clock.get().execute(this::start);
+        } else if (sleeping) {
+            // the new object may require a higher rate
+            Clock.get().execute(this::wake);
+        }
     }
 
     /**
@@ -62,6 +98,360 @@ public class HZ {
      * @param up callback function
      */
     public void deregister(Updatable up) {
-        registered.remove(up);
+        Entry entry = registered.remove(up);
+        if (entry != null) {
+            entry.removed = true;
+            registeredChanged = true;
+        }
+    }
+
+    /**
+     * Set how long a tick may take before deferring objects which are not {@link UpdatePriority#HIGH}
+     *
+     * @param millis time budget in millis
+     */
+    public void setTickBudget(int millis) {
+        tickBudgetNanos = Math.max(0, millis) * 1_000_000L;
+        Logger.info("tick budget set to " + millis + "ms");
+    }
+
+    /**
+     * Get statistics about how late objects of the priority are updated.<br>
+     * The statistics are accumulated since the last {@link #resetLateness()}
+     *
+     * @param priority priority
+     * @return a snapshot of the statistics
+     */
+    public LatenessSnapshot getLateness(UpdatePriority priority) {
+        return lateness[priority.ordinal()].snapshot();
+    }
+
+    /**
+     * Get statistics of all priorities as counters, e.g. for the startup report
+     *
+     * @return name to value
+     */
+    public Map<String, Long> getLatenessStats() {
+        Map<String, Long> ret = new LinkedHashMap<>();
+        for (UpdatePriority priority : PRIORITIES) {
+            LatenessSnapshot l = getLateness(priority);
+            String prefix = "hz_" + priority.name().toLowerCase() + "_";
+            ret.put(prefix + "updated", l.updated);
+            ret.put(prefix + "deferred", l.deferred);
+            ret.put(prefix + "late", l.late);
+            ret.put(prefix + "max_late_millis", l.maxLateMillis);
+        }
+        return ret;
+    }
+
+    /**
+     * Clear statistics of all priorities
+     */
+    public void resetLateness() {
+        for (Lateness l : lateness) {
+            l.reset();
+        }
+    }
+
+    /**
+     * Limit the tick rate.<br>
+     * Ticks are multiples of {@link #UNIT}, so the cap is lowered to the nearest rate dividing {@link #MAX_FPS},
+     * e.g. 60 becomes 50 and 30 becomes 25.<br>
+     * Ticks become longer under a cap, so objects stepping on each tick should scale the step with the elapsed time.
+     *
+     * @param fps max ticks per second, 0 for no limit
+     */
+    public void setFrameRateCap(int fps) {
+        int cap = 0;
+        if (fps > 0) {
+            int units = (int) Math.ceil(MAX_FPS / fps - 1e-9);
+            while (((int) MAX_FPS) % units != 0) {
+                ++units;
+            }
+            cap = (int) MAX_FPS / units;
+        }
+        frameRateCap = cap;
+        Logger.info("frame rate cap set to " + (cap == 0 ? "unlimited" : cap));
+    }
+
+    /**
+     * Get the frame rate cap, which is the actual max tick rate
+     *
+     * @return max ticks per second, 0 for no limit
+     */
+    public int getFrameRateCap() {
+        return frameRateCap;
+    }
+
+    /**
+     * Suspend ticking when nothing is visible, and resume when visible again.<br>
+     * Ticks are not caught up after resuming.
+     *
+     * @param visible whether the character is visible
+     */
+    public void setVisible(boolean visible) {
+        Clock.get().execute(() -> {
+            if (this.visible == visible) {
+                return;
+            }
+            this.visible = visible;
+            Logger.info("animations " + (visible ? "resumed" : "suspended"));
+            if (visible) {
+                start();
+            } else {
+                stop();
+            }
+        });
+    }
+
+    private void start() {
+        if (active || !visible || registered.isEmpty()) {
+            return;
+        }
+        if (timer == null || clock != Clock.get()) {
+            clock = Clock.get();
+            timer = clock.pulse(this::pulse);
+        }
+        active = true;
+        interval = calculateInterval();
+        lastPulseNanos = -1;
+        // run the first tick on the first pulse
+        accumulatedNanos = interval * 1_000_000L;
+        tickMillis = clock.currentTimeMillis() - interval;
+        timer.start();
+    }
+
+    private void stop() {
+        active = false;
+        if (timer != null) {
+            timer.stop();
+        }
+        cancelWakeup();
+    }
+
+    private void wake() {
+        cancelWakeup();
+        if (active) {
+            timer.start();
+        }
+    }
+
+    private void cancelWakeup() {
+        sleeping = false;
+        if (wakeup != null) {
+            wakeup.cancel();
+            wakeup = null;
+        }
+    }
+
+    // the longest multiple of UNIT satisfying all registered objects and the cap
+    private int calculateInterval() {
+        double fps = 0;
+        for (Updatable up : registered.keySet()) {
+            fps = Math.max(fps, up.fps());
+        }
+        // fps like 1000.0 / 30 must give exactly 3 units
+        int units = fps <= 0 ? 1 : Math.max(1, (int) (MAX_FPS / fps + 1e-9));
+        int cap = frameRateCap;
+        if (cap > 0) {
+            units = Math.max(units, (int) Math.ceil(MAX_FPS / cap));
+        }
+        return units * UNIT;
+    }
+
+    private void pulse(long now) {
+        if (lastPulseNanos != -1) {
+            accumulatedNanos += now - lastPulseNanos;
+        }
+        lastPulseNanos = now;
+
+        interval = calculateInterval();
+        long intervalNanos = interval * 1_000_000L;
+        long ticks = accumulatedNanos / intervalNanos;
+        if (ticks > MAX_TICKS_PER_PULSE) {
+            assert Logger.debug((ticks - MAX_TICKS_PER_PULSE) + " ticks dropped");
+            ticks = MAX_TICKS_PER_PULSE;
+            accumulatedNanos = 0;
+            tickMillis = clock.currentTimeMillis() - ticks * interval;
+        } else {
+            accumulatedNanos -= ticks * intervalNanos;
+        }
+        for (long i = 0; i < ticks; ++i) {
+            tickMillis += interval;
+            tick();
+        }
+
+        if (registered.isEmpty()) {
+            stop();
+            // something may be registered before active is set to false
+            if (!registered.isEmpty()) {
+                start();
+            }
+            return;
+        }
+        if (interval >= SLEEP_THRESHOLD && active) {
+            timer.stop();
+            sleeping = true;
+            long sleep = (intervalNanos - accumulatedNanos) / 1_000_000;
+            wakeup = clock.schedule(this::wake, (int) Math.max(1, sleep));
+        }
+    }
+
+    private void tick() {
+        if (registeredChanged) {
+            reorder();
+        }
+        long deadline = System.nanoTime() + tickBudgetNanos;
+        boolean outOfTime = false;
+        for (UpdatePriority priority : PRIORITIES) {
+            Entry[] entries = ordered[priority.ordinal()];
+            int n = entries.length;
+            if (n == 0) {
+                continue;
+            }
+            Lateness stats = lateness[priority.ordinal()];
+            int start = cursor[priority.ordinal()] % n;
+            int firstDeferred = -1;
+            for (int i = 0; i < n; ++i) {
+                int idx = (start + i) % n;
+                Entry entry = entries[idx];
+                if (entry.removed) {
+                    continue;
+                }
+                if (priority != UpdatePriority.HIGH && !outOfTime && System.nanoTime() > deadline) {
+                    outOfTime = true;
+                    assert Logger.debug("tick out of time, deferring " + priority + " objects");
+                }
+                if (outOfTime && priority != UpdatePriority.HIGH) {
+                    if (firstDeferred == -1) {
+                        firstDeferred = idx;
+                    }
+                    if (entry.deferredSince == -1) {
+                        entry.deferredSince = tickMillis;
+                    }
+                    stats.deferred();
+                    continue;
+                }
+                if (entry.deferredSince != -1) {
+                    stats.late(tickMillis - entry.deferredSince);
+                    entry.deferredSince = -1;
+                }
+                stats.updated();
+                entry.up.update(tickMillis);
+            }
+            // deferred objects go first on the next tick
+            cursor[priority.ordinal()] = firstDeferred == -1 ? start : firstDeferred;
+        }
+    }
+
+    private void reorder() {
+        // an object registered after the flag is cleared sets it again
+        registeredChanged = false;
+        List<List<Entry>> lists = new ArrayList<>(PRIORITIES.length);
+        for (int i = 0; i < PRIORITIES.length; ++i) {
+            lists.add(new ArrayList<>());
+        }
+        for (Entry entry : registered.values()) {
+            lists.get(entry.priority.ordinal()).add(entry);
+        }
+        for (int i = 0; i < PRIORITIES.length; ++i) {
+            Entry[] entries = lists.get(i).toArray(new Entry[0]);
+            // keep deferred objects in front
+            Arrays.sort(entries, Comparator.comparingLong(e -> e.deferredSince == -1 ? Long.MAX_VALUE : e.deferredSince));
+            ordered[i] = entries;
+            cursor[i] = 0;
+        }
+    }
+
+    private static class Entry {
+        final Updatable up;
+        final UpdatePriority priority;
+        volatile boolean removed = false;
+        long deferredSince = -1; // only accessed on the thread of the clock
+
+        Entry(Updatable up) {
+            this.up = up;
+            this.priority = up.priority();
+        }
+    }
+
+    private static class Lateness {
+        private long updated; // guarded by this
+        private long deferred; // guarded by this
+        private long late; // guarded by this
+        private long totalLateMillis; // guarded by this
+        private long maxLateMillis; // guarded by this
+
+        synchronized void updated() {
+            ++updated;
+        }
+
+        synchronized void deferred() {
+            ++deferred;
+        }
+
+        synchronized void late(long millis) {
+            ++late;
+            totalLateMillis += millis;
+            maxLateMillis = Math.max(maxLateMillis, millis);
+        }
+
+        synchronized LatenessSnapshot snapshot() {
+            return new LatenessSnapshot(updated, deferred, late,
+                late == 0 ? 0 : (double) totalLateMillis / late, maxLateMillis);
+        }
+
+        synchronized void reset() {
+            updated = 0;
+            deferred = 0;
+            late = 0;
+            totalLateMillis = 0;
+            maxLateMillis = 0;
+        }
+    }
+
+    /**
+     * Statistics about how late objects of a priority are updated
+     */
+    public static class LatenessSnapshot {
+        /**
+         * count of updates
+         */
+        public final long updated;
+        /**
+         * count of updates deferred because the tick was out of time
+         */
+        public final long deferred;
+        /**
+         * count of updates which had been deferred before
+         */
+        public final long late;
+        /**
+         * average millis between the first deferred tick and the actual update
+         */
+        public final double avgLateMillis;
+        /**
+         * max millis between the first deferred tick and the actual update
+         */
+        public final long maxLateMillis;
+
+        LatenessSnapshot(long updated, long deferred, long late, double avgLateMillis, long maxLateMillis) {
+            this.updated = updated;
+            this.deferred = deferred;
+            this.late = late;
+            this.avgLateMillis = avgLateMillis;
+            this.maxLateMillis = maxLateMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "LatenessSnapshot{" +
+                "updated=" + updated +
+                ", deferred=" + deferred +
+                ", late=" + late +
+                ", avgLateMillis=" + avgLateMillis +
+                ", maxLateMillis=" + maxLateMillis +
+                '}';
+        }
     }
 }
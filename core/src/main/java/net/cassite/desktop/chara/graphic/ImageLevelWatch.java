@@ -0,0 +1,69 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.graphic;
+
+import javafx.scene.Node;
+import net.cassite.desktop.chara.manager.ImageManager;
+import net.cassite.desktop.chara.util.EventBus;
+import net.cassite.desktop.chara.util.Events;
+
+/**
+ * Redraw a node when {@link Events#ImageLevelChanged} is published.<br>
+ * The event is only watched while the node is in a scene, so removed nodes are not kept by the event bus.
+ */
+class ImageLevelWatch {
+    private final Runnable redraw;
+    // the following fields are only accessed on JavaFX thread
+    private EventBus.WatchingRegistration<Integer> registration;
+    private int drawnLevel;
+
+    private ImageLevelWatch(Runnable redraw, int drawnLevel) {
+        this.redraw = redraw;
+        this.drawnLevel = drawnLevel;
+    }
+
+    /**
+     * Start watching for the node
+     *
+     * @param node   the node
+     * @param redraw called on JavaFX thread when the level changes, including changes while the node is not in a scene
+     */
+    static void bind(Node node, Runnable redraw) {
+        var watch = new ImageLevelWatch(redraw, ImageManager.getReadyLevel());
+        node.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene == null) {
+                watch.cancel();
+            } else {
+                watch.watch();
+            }
+        });
+        if (node.getScene() != null) {
+            watch.watch();
+        }
+    }
+
+    private void watch() {
+        if (registration != null) {
+            return;
+        }
+        registration = EventBus.watch(Events.ImageLevelChanged, this::redraw);
+        // the level may have changed while not watching
+        redraw(ImageManager.getReadyLevel());
+    }
+
+    private void redraw(int level) {
+        if (level == drawnLevel) {
+            return;
+        }
+        drawnLevel = level;
+        redraw.run();
+    }
+
+    private void cancel() {
+        if (registration == null) {
+            return;
+        }
+        registration.cancel();
+        registration = null;
+    }
+}
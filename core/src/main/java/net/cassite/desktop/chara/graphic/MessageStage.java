@@ -9,12 +9,10 @@ import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
 import net.cassite.desktop.chara.Global;
-import net.cassite.desktop.chara.ThreadUtils;
 import net.cassite.desktop.chara.util.*;
 
 import java.nio.charset.StandardCharsets;
 import java.util.LinkedList;
-import java.util.concurrent.TimeUnit;
 
 /**
  * The stage for showing messages
@@ -43,7 +41,7 @@ public class MessageStage extends Stage {
         setScene(scene);
         getIcons().add(Global.modelIcon);
 
-        ThreadUtils.get().scheduleAtFixedRateFX(this::checkPopBubble, 0, 500, TimeUnit.MILLISECONDS);
+        Clock.get().scheduleAtFixedRate(this::checkPopBubble, 0, 500);
     }
 
     /**
@@ -69,7 +67,7 @@ public class MessageStage extends Stage {
 
         MessageBubble msg = new MessageBubble(message, pointToRight,
             Consts.MSG_BUBBLE_COLORS[inputMessage.colorHash % Consts.MSG_BUBBLE_COLORS.length]);
-        msg.createTime = System.currentTimeMillis();
+        msg.createTime = Clock.get().currentTimeMillis();
         msg.setOnMouseClick(() -> popMessage(msg));
         msg.setY(ySum);
         ySum += msg.getHeight() + Consts.MSG_BUBBLE_MARGIN_VERTICAL;
@@ -307,7 +305,7 @@ public class MessageStage extends Stage {
         var first = messageBubbles.peekFirst();
         assert first != null;
         long createTime = first.createTime;
-        long current = System.currentTimeMillis();
+        long current = Clock.get().currentTimeMillis();
         if (current - createTime > getDuration(first)) {
             if (current - lastPopTime > 1500) {
                 popMessage(first);
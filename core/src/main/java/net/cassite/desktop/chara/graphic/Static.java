@@ -23,14 +23,24 @@ public class Static {
      * @param imageName the image entry name in the model of the default shown image.
      *                  the name will be passed to {@link ImageManager#load(String)},
      *                  so the name will be prepended with the model name.
+     * @see ImageManager#loadStandalone(String)
      */
     public Static(String imageName) {
-        img = ImageManager.load(imageName);
+        img = ImageManager.loadStandalone(imageName);
         assert img != null;
 
         imageView.setSmooth(true);
-        imageView.setImage(img.image);
+        setImage();
         resetPosition();
+
+        // use the downscaled image when ready
+        ImageLevelWatch.bind(imageView, this::setImage);
+    }
+
+    private void setImage() {
+        var shown = ImageManager.forDisplay(img);
+        imageView.setImage(shown.image);
+        imageView.setViewport(shown.viewport);
     }
 
     /**
@@ -13,12 +13,16 @@ public class TimeBasedAnimationHelper implements Updatable {
         void update(double percentage);
     }
 
+    // the progress is calculated from time, so it looks smooth enough at this rate
+    private static final double FPS = 50;
+
     private int duration;
     private final Update updateFunc;
     private final int skip;
     private boolean playing;
     private long startTimestamp;
     private Runnable finishCallback;
+    private UpdatePriority priority = UpdatePriority.NORMAL;
 
     /**
      * Constructor
@@ -34,7 +38,7 @@ public class TimeBasedAnimationHelper implements Updatable {
      * Constructor
      *
      * @param duration   duration in millis
-     * @param skip       how many events alerted by {@link HZ} can be skipped
+     * @param skip       how many events alerted by {@link HZ} can be skipped, HZ ticks at most 50 times per second for this object
      * @param updateFunc callback function
      */
     public TimeBasedAnimationHelper(int duration, int skip, Update updateFunc) {
@@ -69,6 +73,17 @@ public class TimeBasedAnimationHelper implements Updatable {
         return this;
     }
 
+    /**
+     * Set priority of this object, which takes effect when it starts playing next time
+     *
+     * @param priority priority
+     * @return <code>this</code>
+     */
+    public TimeBasedAnimationHelper setPriority(UpdatePriority priority) {
+        this.priority = priority;
+        return this;
+    }
+
     /**
      * Reset the duration
      *
@@ -95,6 +110,16 @@ public class TimeBasedAnimationHelper implements Updatable {
 
     private int skipped = 0;
 
+    @Override
+    public double fps() {
+        return FPS;
+    }
+
+    @Override
+    public UpdatePriority priority() {
+        return priority;
+    }
+
     @Override
     public void update(long current) {
         if (!playing) {
@@ -9,4 +9,26 @@ public interface Updatable {
      * @param current current time millis
      */
     void update(long current);
+
+    /**
+     * How many times per second the object needs to be updated.<br>
+     * {@link HZ} ticks at the lowest rate satisfying all registered objects.
+     * Objects counting ticks instead of reading the time should keep the default value.
+     *
+     * @return updates per second
+     */
+    default double fps() {
+        return HZ.MAX_FPS;
+    }
+
+    /**
+     * Priority of the object, which is read when registering to {@link HZ}.<br>
+     * Objects which are not {@link UpdatePriority#HIGH} may be deferred when a tick is out of time,
+     * so they should compute their state from the time instead of counting ticks.
+     *
+     * @return priority
+     */
+    default UpdatePriority priority() {
+        return UpdatePriority.NORMAL;
+    }
 }
@@ -0,0 +1,24 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.graphic;
+
+/**
+ * Priority of an {@link Updatable}.<br>
+ * On each tick, {@link HZ} calls objects with higher priority first.
+ * When the tick runs out of its time budget, <code>NORMAL</code> and <code>LOW</code> objects
+ * are deferred to the next tick, which means they skip frames under load.
+ */
+public enum UpdatePriority {
+    /**
+     * Always updated on every tick, e.g. eyes, mouth and the head following the cursor
+     */
+    HIGH,
+    /**
+     * Updated before <code>LOW</code> objects, the default priority
+     */
+    NORMAL,
+    /**
+     * Updated only when time is left, e.g. ambient swinging of hair, cloth and chains
+     */
+    LOW,
+}
@@ -124,6 +124,21 @@ public class I18nConsts {
         ("部分组件在重新启动本程序后，当前配置才会生效")
         .setEn("Some components will not apply current config until rebooting this program")
         .build();
+    public static final Words frameRateCapMenu = new WordsBuilder
+        ("帧率上限")
+        .setEn("Frame rate cap")
+        .build();
+
+    public static final Words frameRateUnlimitedItem = new WordsBuilder
+        ("不限制")
+        .setEn("Unlimited")
+        .build();
+
+    public static final Words stallReportItem = new WordsBuilder
+        ("卡顿报告")
+        .setEn("Stall report")
+        .build();
+
     public static final Words resetScalingRatioAfterReboot = new WordsBuilder
         ("重新启动本程序后重置缩放比例")
         .setEn("Reset scaling ratio after rebooting this program")
@@ -0,0 +1,133 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.manager;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import net.cassite.desktop.chara.util.XImage;
+
+import java.util.*;
+
+/**
+ * Pack images into a few large sheets with shelf packing.<br>
+ * Images are sorted by height, and placed from left to right on shelves, a new shelf is opened when the current one is full.
+ */
+class AtlasPacker {
+    // most graphic cards support textures of this size
+    static final int MAX_SHEET_SIZE = 4096;
+    // transparent gutter between images, so that smooth scaling and downscaled levels do not sample pixels of the neighbours
+    private static final int PADDING = 4;
+    // images are placed at multiples of this value, so that downscaled levels do not mix pixels of different images
+    private static final int ALIGN = 1 << ImageManager.MAX_LEVEL;
+
+    private AtlasPacker() {
+    }
+
+    /**
+     * Pack the images
+     *
+     * @param images images to pack, all images must not have viewport
+     * @return packed images in the same order as <code>images</code>,
+     * images too large for a sheet are returned as is
+     */
+    static XImage[] pack(List<XImage> images) {
+        int n = images.size();
+        XImage[] ret = images.toArray(new XImage[0]);
+        if (n < 2) {
+            return ret;
+        }
+
+        // identical frames sharing one image are placed only once
+        int[] sameAs = new int[n];
+        Map<Image, Integer> firstIndex = new IdentityHashMap<>();
+        List<Integer> orderList = new ArrayList<>(n);
+        long area = 0;
+        int maxWidth = 0;
+        for (int i = 0; i < n; ++i) {
+            var img = images.get(i);
+            Integer first = firstIndex.putIfAbsent(img.image, i);
+            sameAs[i] = first == null ? i : first;
+            if (first != null) {
+                continue;
+            }
+            orderList.add(i);
+            area += (long) cell(w(img)) * cell(h(img));
+            if (cell(w(img)) <= MAX_SHEET_SIZE) {
+                maxWidth = Math.max(maxWidth, cell(w(img)));
+            }
+        }
+        Integer[] order = orderList.toArray(new Integer[0]);
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> h(images.get(i))).reversed());
+        int sheetWidth = (int) Math.min(MAX_SHEET_SIZE, Math.max(maxWidth, Math.ceil(Math.sqrt(area))));
+
+        // compute placement
+        int[] sheetOf = new int[n];
+        int[] posX = new int[n];
+        int[] posY = new int[n];
+        List<Integer> sheetHeights = new ArrayList<>();
+        int shelfX = 0;
+        int shelfY = 0;
+        int shelfH = 0;
+        for (int i : order) {
+            var img = images.get(i);
+            int w = cell(w(img));
+            int h = cell(h(img));
+            if (w > sheetWidth || h > MAX_SHEET_SIZE) {
+                sheetOf[i] = -1;
+                continue;
+            }
+            if (shelfX + w > sheetWidth) {
+                shelfY += shelfH;
+                shelfX = 0;
+                shelfH = 0;
+            }
+            if (shelfY + h > MAX_SHEET_SIZE) {
+                sheetHeights.add(shelfY);
+                shelfX = 0;
+                shelfY = 0;
+                shelfH = 0;
+            }
+            sheetOf[i] = sheetHeights.size();
+            posX[i] = shelfX;
+            posY[i] = shelfY;
+            shelfX += w;
+            shelfH = Math.max(shelfH, h);
+        }
+        sheetHeights.add(shelfY + shelfH);
+
+        // copy pixels
+        WritableImage[] sheets = new WritableImage[sheetHeights.size()];
+        for (int s = 0; s < sheets.length; ++s) {
+            if (sheetHeights.get(s) > 0) {
+                sheets[s] = new WritableImage(sheetWidth, sheetHeights.get(s));
+            }
+        }
+        for (int i = 0; i < n; ++i) {
+            int p = sameAs[i];
+            if (sheetOf[p] == -1) {
+                continue;
+            }
+            var img = images.get(i);
+            var sheet = sheets[sheetOf[p]];
+            if (p == i) {
+                sheet.getPixelWriter().setPixels(posX[i], posY[i], w(img), h(img), img.image.getPixelReader(), 0, 0);
+            }
+            ret[i] = new XImage(img.time, img.x, img.y, sheet,
+                new Rectangle2D(posX[p], posY[p], w(img), h(img)));
+        }
+        return ret;
+    }
+
+    private static int cell(int n) {
+        return (n + ALIGN - 1) / ALIGN * ALIGN + PADDING;
+    }
+
+    private static int w(XImage img) {
+        return (int) img.getWidth();
+    }
+
+    private static int h(XImage img) {
+        return (int) img.getHeight();
+    }
+}
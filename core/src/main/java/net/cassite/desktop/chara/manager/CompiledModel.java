@@ -0,0 +1,138 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.manager;
+
+import net.cassite.desktop.chara.util.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+
+/**
+ * Index of frames pre-trimmed by {@link ModelCompiler}.<br>
+ * A compiled frame replaces the png entry of the same name,
+ * and is stored uncompressed and aligned as premultiplied argb ints in little endian.
+ * <pre>
+ * index entry {modelName}/frames.idx (little endian):
+ * +-------+---------+-------+-------------+
+ * | magic | version | count | index * cnt |
+ * +-------+---------+-------+-------------+
+ * index:
+ * +----------+------+---+---+---+---+
+ * | name_len | name | x | y | w | h |
+ * +----------+------+---+---+---+---+
+ *   short     utf8  int int int int
+ * </pre>
+ */
+class CompiledModel {
+    static final String INDEX_NAME = "frames.idx";
+    static final int MAGIC = 0x434d4843; // CHMC
+    static final int VERSION = 1;
+
+    private final Map<String, Frame> frames;
+
+    private CompiledModel(Map<String, Frame> frames) {
+        this.frames = frames;
+    }
+
+    /**
+     * Read the index from the model file
+     *
+     * @param archive   the model archive
+     * @param modelName name of the model
+     * @return the index, or null if the model is not compiled or the index is broken
+     */
+    static CompiledModel open(ModelArchive archive, String modelName) {
+        var entry = archive.getEntry(modelName + "/" + INDEX_NAME);
+        if (entry == null) {
+            return null;
+        }
+        ByteBuffer buf;
+        try (InputStream in = archive.getInputStream(entry)) {
+            buf = ByteBuffer.wrap(in.readAllBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            Logger.warn("reading compiled frame index " + entry.getName() + " failed", e);
+            return null;
+        }
+        try {
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                Logger.warn("compiled frame index " + entry.getName() + " is not supported, frames will be decoded");
+                return null;
+            }
+            int count = buf.getInt();
+            Map<String, Frame> frames = new HashMap<>(count);
+            for (int i = 0; i < count; ++i) {
+                byte[] nameBytes = new byte[buf.getShort() & 0xffff];
+                buf.get(nameBytes);
+                var frame = new Frame(buf.getInt(), buf.getInt(), buf.getInt(), buf.getInt());
+                frames.put(new String(nameBytes, StandardCharsets.UTF_8), frame);
+            }
+            Logger.info("model " + modelName + " is compiled with " + count + " frames");
+            return new CompiledModel(Collections.unmodifiableMap(frames));
+        } catch (RuntimeException e) {
+            Logger.warn("compiled frame index " + entry.getName() + " is broken, frames will be decoded", e);
+            return null;
+        }
+    }
+
+    /**
+     * Get a compiled frame
+     *
+     * @param name name of the frame
+     * @return the frame, or null if the frame is not compiled
+     */
+    Frame get(String name) {
+        return frames.get(name);
+    }
+
+    /**
+     * Read pixels of the frame. The pixels are not copied if the model file is mapped.
+     *
+     * @param archive the model archive
+     * @param entry   entry of the frame
+     * @param frame   the frame
+     * @return premultiplied argb pixels, or null if failed to read
+     */
+    static IntBuffer readPixels(ModelArchive archive, ZipEntry entry, Frame frame) {
+        if (entry.getSize() != frame.byteSize()) {
+            Logger.warn("size of compiled frame " + entry.getName() + " is " + entry.getSize() +
+                ", but " + frame.byteSize() + " is expected");
+            return null;
+        }
+        ByteBuffer buf = archive.getBuffer(entry);
+        if (buf == null) {
+            try (InputStream in = archive.getInputStream(entry)) {
+                buf = ByteBuffer.wrap(in.readNBytes((int) frame.byteSize()));
+            } catch (IOException e) {
+                Logger.warn("reading compiled frame " + entry.getName() + " failed", e);
+                return null;
+            }
+        }
+        return buf.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    static class Frame {
+        final int x;
+        final int y;
+        final int w;
+        final int h;
+
+        Frame(int x, int y, int w, int h) {
+            this.x = x;
+            this.y = y;
+            this.w = w;
+            this.h = h;
+        }
+
+        long byteSize() {
+            return 4L * w * h;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.manager;
+
+import net.cassite.desktop.chara.util.XImage;
+
+import java.util.Arrays;
+
+/**
+ * A trimmed frame kept in memory in alpha-aware run length encoding.<br>
+ * Pixels are premultiplied argb in row-major order, encoded as a stream of tokens:
+ * <pre>
+ * SKIP    len           : len transparent pixels
+ * REPEAT  len, argb     : len pixels of the same value
+ * LITERAL len, argb*len : len pixels copied as is
+ * </pre>
+ * The kind of a token is stored in the highest 2 bits of the first int, and the length in the rest bits.
+ */
+class CompressedFrame extends EncodedFrame {
+    private static final int KIND_SKIP = 0;
+    private static final int KIND_REPEAT = 1;
+    private static final int KIND_LITERAL = 2;
+    private static final int LEN_MASK = 0x3fffffff;
+    // shorter runs are cheaper to keep as literals
+    private static final int MIN_REPEAT = 3;
+
+    private final int[] data;
+
+    private CompressedFrame(long time, int x, int y, int width, int height, int[] data) {
+        super(time, x, y, width, height);
+        this.data = data;
+    }
+
+    /**
+     * Encode the frame
+     *
+     * @param xImage the frame, must not have viewport
+     * @param px     premultiplied argb pixels of the frame
+     * @return the encoded frame
+     */
+    static CompressedFrame encode(XImage xImage, int[] px) {
+        return encode(xImage.time, xImage.x, xImage.y, (int) xImage.getWidth(), (int) xImage.getHeight(), px);
+    }
+
+    /**
+     * Encode the frame
+     *
+     * @param time   last modification time
+     * @param x      x offset
+     * @param y      y offset
+     * @param width  width of the pixels
+     * @param height height of the pixels
+     * @param px     premultiplied argb pixels of the frame
+     * @return the encoded frame
+     */
+    static CompressedFrame encode(long time, int x, int y, int width, int height, int[] px) {
+        return new CompressedFrame(time, x, y, width, height, encode(px));
+    }
+
+    private static int[] encode(int[] px) {
+        int n = px.length;
+        int[] out = new int[Math.max(16, n / 8)];
+        int o = 0;
+        int i = 0;
+        while (i < n) {
+            int p = px[i];
+            int j = i + 1;
+            while (j < n && px[j] == p) {
+                ++j;
+            }
+            if (p == 0 || j - i >= MIN_REPEAT) {
+                out = ensure(out, o, 2);
+                out[o++] = ((p == 0 ? KIND_SKIP : KIND_REPEAT) << 30) | (j - i);
+                if (p != 0) {
+                    out[o++] = p;
+                }
+                i = j;
+                continue;
+            }
+            // literal: stop before a transparent pixel or a long enough run
+            int k = i;
+            while (k < n) {
+                int q = px[k];
+                if (q == 0) {
+                    break;
+                }
+                int m = k + 1;
+                while (m < n && m - k < MIN_REPEAT && px[m] == q) {
+                    ++m;
+                }
+                if (m - k >= MIN_REPEAT) {
+                    break;
+                }
+                k = m;
+            }
+            out = ensure(out, o, 1 + k - i);
+            out[o++] = (KIND_LITERAL << 30) | (k - i);
+            System.arraycopy(px, i, out, o, k - i);
+            o += k - i;
+            i = k;
+        }
+        return Arrays.copyOf(out, o);
+    }
+
+    private static int[] ensure(int[] out, int used, int more) {
+        if (used + more <= out.length) {
+            return out;
+        }
+        return Arrays.copyOf(out, Math.max(out.length * 2, used + more));
+    }
+
+    @Override
+    void decode(int[] dst) {
+        int pos = 0;
+        int d = 0;
+        while (pos < data.length) {
+            int token = data[pos++];
+            int kind = token >>> 30;
+            int len = token & LEN_MASK;
+            if (kind == KIND_SKIP) {
+                Arrays.fill(dst, d, d + len, 0);
+            } else if (kind == KIND_REPEAT) {
+                Arrays.fill(dst, d, d + len, data[pos++]);
+            } else {
+                System.arraycopy(data, pos, dst, d, len);
+                pos += len;
+            }
+            d += len;
+        }
+    }
+
+    @Override
+    long bytes() {
+        return data.length * 4L;
+    }
+}
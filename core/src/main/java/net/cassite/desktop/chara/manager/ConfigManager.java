@@ -4,6 +4,7 @@ package net.cassite.desktop.chara.manager;
 
 import net.cassite.desktop.chara.Global;
 import net.cassite.desktop.chara.ThreadUtils;
+import net.cassite.desktop.chara.util.Clock;
 import net.cassite.desktop.chara.util.Consts;
 import net.cassite.desktop.chara.util.Key;
 import net.cassite.desktop.chara.util.Logger;
@@ -42,6 +43,8 @@ public class ConfigManager {
         private Boolean coordinatesScaled;
         private Double bondPoint;
         private Double desirePoint;
+        private Integer imageMemoryBudget;
+        private Integer frameRateCap;
         private final Map<Key<Integer>, Integer> integerRegisters = new ConcurrentHashMap<>();
         private final Map<Key<Double>, Double> doubleRegisters = new ConcurrentHashMap<>();
         private final Map<Key<Boolean>, Boolean> booleanRegisters = new ConcurrentHashMap<>();
@@ -165,6 +168,24 @@ public class ConfigManager {
             save();
         }
 
+        public Integer getImageMemoryBudget() {
+            return imageMemoryBudget;
+        }
+
+        public void setImageMemoryBudget(Integer imageMemoryBudget) {
+            this.imageMemoryBudget = imageMemoryBudget;
+            save();
+        }
+
+        public Integer getFrameRateCap() {
+            return frameRateCap;
+        }
+
+        public void setFrameRateCap(Integer frameRateCap) {
+            this.frameRateCap = frameRateCap;
+            save();
+        }
+
         public String getChatbot() {
             return chatbot;
         }
@@ -308,6 +329,18 @@ public class ConfigManager {
                     this.desirePoint = ((JSON.Double) o).doubleValue();
                 }
             }
+            if (obj.containsKey("image_memory_budget_mb")) {
+                var o = obj.get("image_memory_budget_mb");
+                if (o instanceof JSON.Integer) {
+                    this.imageMemoryBudget = ((JSON.Integer) o).intValue();
+                }
+            }
+            if (obj.containsKey("frame_rate_cap")) {
+                var o = obj.get("frame_rate_cap");
+                if (o instanceof JSON.Integer) {
+                    this.frameRateCap = ((JSON.Integer) o).intValue();
+                }
+            }
             if (obj.containsKey("chatbot")) {
                 var o = obj.get("chatbot");
                 if (o instanceof JSON.String) {
@@ -399,6 +432,12 @@ public class ConfigManager {
             if (desirePoint != null) {
                 ob.put("desire_point", desirePoint);
             }
+            if (imageMemoryBudget != null) {
+                ob.put("image_memory_budget_mb", imageMemoryBudget);
+            }
+            if (frameRateCap != null) {
+                ob.put("frame_rate_cap", frameRateCap);
+            }
             if (chatbot != null) {
                 ob.put("chatbot", chatbot);
             }
@@ -440,6 +479,8 @@ public class ConfigManager {
                 ", activeInteractionEnabled=" + activeInteractionEnabled +
                 ", bondPoint=" + bondPoint +
                 ", desirePoint=" + desirePoint +
+                ", imageMemoryBudget=" + imageMemoryBudget +
+                ", frameRateCap=" + frameRateCap +
                 ", integerRegisters=" + integerRegisters +
                 ", doubleRegisters=" + doubleRegisters +
                 ", booleanRegisters=" + booleanRegisters +
@@ -488,10 +529,12 @@ public class ConfigManager {
         JSON.Object o = (JSON.Object) inst;
         config.from(o);
 
-        ThreadUtils.get().scheduleAtFixedRate(() -> {
+        // save() writes the file on a blocking thread
+        int period = (int) TimeUnit.MINUTES.toMillis(10);
+        Clock.get().scheduleAtFixedRate(() -> {
             config.lastTimestamp = System.currentTimeMillis();
             save();
-        }, 10, 10, TimeUnit.MINUTES);
+        }, period, period);
     }
 
     /**
@@ -534,17 +577,18 @@ public class ConfigManager {
             return;
         }
         pending = true;
-        ThreadUtils.get().schedule(() -> {
+        // the timer thread only hands over, the file is written on a blocking thread
+        ThreadUtils.get().schedule(() -> ThreadUtils.get().submitBlocking(() -> {
             pending = false;
             try {
                 doSave();
             } catch (Exception e) {
                 Logger.error("saving config failed", e);
             }
-        }, 1, TimeUnit.SECONDS);
+        }), 1, TimeUnit.SECONDS);
     }
 
-    private void doSave() throws Exception {
+    private synchronized void doSave() throws Exception {
         Objects.requireNonNull(Global.modelName, "Global.modelName");
 
         String content = config.serialize();
@@ -0,0 +1,68 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.manager;
+
+import java.nio.IntBuffer;
+
+/**
+ * Identifies pixels of an image by size and two independent 64-bit hashes,
+ * so that images with identical content can share memory.
+ */
+final class ContentKey {
+    private final int width;
+    private final int height;
+    private final long h1;
+    private final long h2;
+
+    private ContentKey(int width, int height, long h1, long h2) {
+        this.width = width;
+        this.height = height;
+        this.h1 = h1;
+        this.h2 = h2;
+    }
+
+    static ContentKey of(int width, int height, int[] pixels, int offset, int len) {
+        long h1 = 0xcbf29ce484222325L;
+        long h2 = 0;
+        for (int i = offset, end = offset + len; i < end; ++i) {
+            int p = pixels[i];
+            h1 = (h1 ^ p) * 0x100000001b3L;
+            h2 = mix(h2 + p);
+        }
+        return new ContentKey(width, height, h1, h2);
+    }
+
+    static ContentKey of(int width, int height, IntBuffer pixels) {
+        long h1 = 0xcbf29ce484222325L;
+        long h2 = 0;
+        for (int i = pixels.position(), end = pixels.limit(); i < end; ++i) {
+            int p = pixels.get(i);
+            h1 = (h1 ^ p) * 0x100000001b3L;
+            h2 = mix(h2 + p);
+        }
+        return new ContentKey(width, height, h1, h2);
+    }
+
+    // murmur3 finalizer
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ContentKey that = (ContentKey) o;
+        return width == that.width && height == that.height && h1 == that.h1 && h2 == that.h2;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (h1 ^ (h1 >>> 32));
+    }
+}
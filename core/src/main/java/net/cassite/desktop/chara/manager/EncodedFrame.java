@@ -0,0 +1,70 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.manager;
+
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import net.cassite.desktop.chara.util.XImage;
+
+/**
+ * A trimmed frame kept in memory in a compact form, decoded only when shown.
+ *
+ * @see FrameCanvas
+ */
+abstract class EncodedFrame {
+    final long time;
+    final int x;
+    final int y;
+    final int width;
+    final int height;
+
+    EncodedFrame(long time, int x, int y, int width, int height) {
+        this.time = time;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Decode premultiplied argb pixels into the buffer, row by row
+     *
+     * @param dst buffer with at least width * height elements
+     */
+    abstract void decode(int[] dst);
+
+    /**
+     * Get memory used only by this frame
+     *
+     * @return bytes
+     */
+    abstract long bytes();
+
+    /**
+     * Release resources shared with other frames. Called when the frame is evicted.
+     */
+    void release() {
+    }
+
+    /**
+     * Get memory used by the decoded frame
+     *
+     * @return bytes
+     */
+    long rawBytes() {
+        return (long) width * height * 4;
+    }
+
+    /**
+     * Decode into a new image
+     *
+     * @return the decoded frame
+     */
+    XImage toXImage() {
+        int[] px = new int[width * height];
+        decode(px);
+        WritableImage image = new WritableImage(width, height);
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(), px, 0, width);
+        return new XImage(time, x, y, image);
+    }
+}
@@ -0,0 +1,512 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.manager;
+
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import net.cassite.desktop.chara.util.Consts;
+import net.cassite.desktop.chara.util.Logger;
+import net.cassite.desktop.chara.util.XImage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+
+/**
+ * The packed cache of trimmed frames, one file per model.<br>
+ * The file is read through memory mapping, so loading a cached frame only copies the raw pixels into an image.<br>
+ * <pre>
+ * file layout (little endian):
+ * +-------+---------+-------+------------+-------------+---------+-----------------------+
+ * | magic | version | count | index_size | index * cnt | padding | pixels (int argb pre) |
+ * +-------+---------+-------+------------+-------------+---------+-----------------------+
+ * index:
+ * +----------+------+-----+------+---+---+---+---+--------+
+ * | name_len | name | crc | size | x | y | w | h | offset |
+ * +----------+------+-----+------+---+---+---+---+--------+
+ *   short     utf8   int   long  int int int int   long
+ * </pre>
+ * A frame is valid as long as the crc32 and the size of its entry in the model file are unchanged,
+ * so re-packing the model file does not expire the cache.
+ * A frame moved to another name is found by its crc32 and size, and is not decoded again.<br>
+ * New frames are written by a background thread into a pending file,
+ * and merged into the packed file when {@link #flush(ModelArchive, String)} is called,
+ * frames no longer matching the model file are dropped at the same time.
+ */
+public class FrameCache {
+    private static final int MAGIC = 0x43484643; // CHFC
+    private static final int VERSION = 4;
+    private static final int HEADER_SIZE = 16;
+    private static final long MAX_SEGMENT_SIZE = 1024L * 1024 * 1024;
+
+    private final String modelName;
+    private final File file;
+    private final File newFile;
+    private final File tmpFile;
+    private final File pendingFile;
+
+    private volatile Map<String, Record> records;
+    private volatile Map<String, Record> byContent;
+
+    // guarded by this
+    private final Map<String, Record> pending = new LinkedHashMap<>();
+    // only accessed on writer thread
+    private FileChannel pendingChannel;
+    private long pendingSize = 0;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "frame-cache-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private FrameCache(String modelName) {
+        this.modelName = modelName;
+        String base = System.getProperty("user.home") + "/" + Consts.CACHE_DIR_NAME + "/" + modelName;
+        this.file = new File(base + ".frames");
+        this.newFile = new File(base + ".frames.new");
+        this.tmpFile = new File(base + ".frames.tmp");
+        this.pendingFile = new File(base + ".frames.pending");
+    }
+
+    /**
+     * Open the cache of the model
+     *
+     * @param modelName name of the model
+     * @return the cache object, never null. If the cache file is missing or broken, the cache will be empty.
+     */
+    public static FrameCache open(String modelName) {
+        var cache = new FrameCache(modelName);
+        cache.init();
+        return cache;
+    }
+
+    private void init() {
+        File dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            Logger.warn("failed to create cache dir " + dir);
+        }
+        // clean up files left by the last run
+        //noinspection ResultOfMethodCallIgnored
+        tmpFile.delete();
+        //noinspection ResultOfMethodCallIgnored
+        pendingFile.delete();
+        if (newFile.isFile()) {
+            // the last flush could not replace the file
+            try {
+                Files.move(newFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                Logger.warn("failed to replace " + file + " with " + newFile, e);
+            }
+        }
+        // the old cache format uses a directory for each frame
+        File legacyDir = new File(dir, modelName);
+        if (legacyDir.isDirectory()) {
+            writer.execute(() -> {
+                Logger.info("removing legacy cache dir " + legacyDir);
+                deleteDir(legacyDir);
+            });
+        }
+
+        File toRead = file.isFile() ? file : newFile;
+        setRecords(read(toRead));
+        Logger.info("frame cache " + toRead + " opened with " + records.size() + " frames");
+    }
+
+    private Map<String, Record> read(File f) {
+        if (!f.isFile()) {
+            return Collections.emptyMap();
+        }
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                Logger.warn("frame cache " + f + " is not valid, it will be rebuilt");
+                return Collections.emptyMap();
+            }
+            ByteBuffer head = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, head, 0);
+            head.flip();
+            if (head.getInt() != MAGIC || head.getInt() != VERSION) {
+                Logger.warn("frame cache " + f + " is not valid, it will be rebuilt");
+                return Collections.emptyMap();
+            }
+            int count = head.getInt();
+            int indexSize = head.getInt();
+            if (count < 0 || indexSize < 0 || indexSize > fileSize - HEADER_SIZE) {
+                Logger.warn("frame cache " + f + " is not valid, it will be rebuilt");
+                return Collections.emptyMap();
+            }
+
+            // only the index is read onto the heap, the pixels are mapped
+            ByteBuffer indexBuf = ByteBuffer.allocate(indexSize).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, indexBuf, HEADER_SIZE);
+            indexBuf.flip();
+
+            List<Record> ls = new ArrayList<>(count);
+            for (int i = 0; i < count; ++i) {
+                int nameLen = indexBuf.getShort() & 0xffff;
+                byte[] nameBytes = new byte[nameLen];
+                indexBuf.get(nameBytes);
+                String name = new String(nameBytes, StandardCharsets.UTF_8);
+                int crc = indexBuf.getInt();
+                long size = indexBuf.getLong();
+                int x = indexBuf.getInt();
+                int y = indexBuf.getInt();
+                int w = indexBuf.getInt();
+                int h = indexBuf.getInt();
+                long offset = indexBuf.getLong();
+                if (w <= 0 || h <= 0 || offset < 0 || offset + 4L * w * h > fileSize) {
+                    Logger.warn("frame cache " + f + " is broken at frame " + name + ", it will be rebuilt");
+                    return Collections.emptyMap();
+                }
+                ls.add(new Record(name, crc, size, x, y, w, h, offset));
+            }
+            mapSegments(channel, ls);
+
+            Map<String, Record> ret = new HashMap<>(count);
+            for (var r : ls) {
+                ret.put(r.name, r);
+            }
+            return ret;
+        } catch (IOException | RuntimeException e) {
+            Logger.warn("reading frame cache " + f + " failed, it will be rebuilt", e);
+            return Collections.emptyMap();
+        }
+    }
+
+    // a single mapping cannot exceed 2G, so split the file into multiple segments
+    private static void mapSegments(FileChannel channel, List<Record> ls) throws IOException {
+        List<Record> sorted = new ArrayList<>(ls);
+        sorted.sort(Comparator.comparingLong(r -> r.offset));
+        int begin = 0;
+        while (begin < sorted.size()) {
+            long segStart = sorted.get(begin).offset;
+            int end = begin;
+            long segEnd = segStart;
+            while (end < sorted.size()) {
+                var r = sorted.get(end);
+                long rEnd = r.offset + r.byteSize();
+                if (end != begin && rEnd - segStart > MAX_SEGMENT_SIZE) {
+                    break;
+                }
+                segEnd = rEnd;
+                ++end;
+            }
+            var seg = channel.map(FileChannel.MapMode.READ_ONLY, segStart, segEnd - segStart);
+            for (int i = begin; i < end; ++i) {
+                var r = sorted.get(i);
+                r.segment = seg;
+                r.segmentOffset = (int) (r.offset - segStart);
+            }
+            begin = end;
+        }
+    }
+
+    /**
+     * Retrieve the frame from cache.<br>
+     * This method can be called from any thread.
+     *
+     * @param name  name of the frame
+     * @param entry entry of the frame in the model file, used to check whether the cache is still valid
+     * @return the frame, or null if not cached or expired
+     */
+    public XImage get(String name, ZipEntry entry) {
+        Record r = records.get(name);
+        if (r != null && !r.matches(entry)) {
+            Logger.info(name + " cache expired");
+            r = null;
+        }
+        if (r == null) {
+            // the same content may be cached under another name
+            r = byContent.get(entryKey(entry));
+            if (r == null) {
+                return null;
+            }
+            assert Logger.debug(name + " reuses cached frame " + r.name);
+            Record alias = new Record(name, r.crc, r.size, r.x, r.y, r.w, r.h, -1);
+            alias.segment = r.segment;
+            alias.segmentOffset = r.segmentOffset;
+            synchronized (this) {
+                pending.put(name, alias);
+            }
+        }
+        WritableImage image = new WritableImage(r.w, r.h);
+        image.getPixelWriter().setPixels(0, 0, r.w, r.h, PixelFormat.getIntArgbPreInstance(), r.pixels(), r.w);
+        return new XImage(entry.getTime(), r.x, r.y, image);
+    }
+
+    /**
+     * Calculate the content key of a cached frame
+     *
+     * @param entry entry of the frame in the model file
+     * @return the key, or null if not cached
+     */
+    ContentKey contentKey(ZipEntry entry) {
+        Record r = byContent.get(entryKey(entry));
+        if (r == null) {
+            return null;
+        }
+        return ContentKey.of(r.w, r.h, r.pixels());
+    }
+
+    /**
+     * Record the frame. The pixels will be written by a background thread.<br>
+     * This method can be called from any thread.
+     *
+     * @param name   name of the frame
+     * @param entry  entry of the frame in the model file
+     * @param x      x offset
+     * @param y      y offset
+     * @param w      width of the trimmed frame
+     * @param h      height of the trimmed frame
+     * @param pixels pixels of the trimmed frame in premultiplied argb format, the array must not be modified after calling this method
+     */
+    public void put(String name, ZipEntry entry, int x, int y, int w, int h, int[] pixels) {
+        Record r = new Record(name, (int) entry.getCrc(), entry.getSize(), x, y, w, h, -1);
+        writer.execute(() -> writePending(r, pixels));
+    }
+
+    private void writePending(Record r, int[] pixels) {
+        try {
+            if (pendingChannel == null) {
+                pendingChannel = FileChannel.open(pendingFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+                pendingSize = 0;
+            }
+            ByteBuffer buf = ByteBuffer.allocate(pixels.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+            buf.asIntBuffer().put(pixels);
+            long offset = pendingSize;
+            while (buf.hasRemaining()) {
+                pendingSize += pendingChannel.write(buf, pendingSize);
+            }
+            r.pendingOffset = offset;
+        } catch (IOException e) {
+            Logger.warn("writing frame " + r.name + " into cache failed", e);
+            return;
+        }
+        synchronized (this) {
+            pending.put(r.name, r);
+        }
+    }
+
+    /**
+     * Merge newly recorded frames into the packed cache file. The operation will be done by a background thread.
+     *
+     * @param archive the model archive, used to drop expired frames
+     * @param prefix  prefix to prepend to the frame name to get the entry name
+     */
+    public void flush(ModelArchive archive, String prefix) {
+        writer.execute(() -> doFlush(archive, prefix));
+    }
+
+    private void doFlush(ModelArchive archive, String prefix) {
+        Map<String, Record> pending;
+        synchronized (this) {
+            pending = new LinkedHashMap<>(this.pending);
+            this.pending.clear();
+        }
+        List<Record> toWrite = new ArrayList<>(records.size() + pending.size());
+        int dropped = 0;
+        for (var r : records.values()) {
+            var entry = archive.getEntry(prefix + r.name);
+            if (entry == null || !r.matches(entry)) {
+                ++dropped;
+                continue;
+            }
+            if (pending.containsKey(r.name)) {
+                continue;
+            }
+            toWrite.add(r);
+        }
+        if (pending.isEmpty() && dropped == 0) {
+            return;
+        }
+        int kept = toWrite.size();
+        int reused = 0;
+        for (var r : pending.values()) {
+            if (r.segment != null) {
+                ++reused;
+            }
+        }
+        toWrite.addAll(pending.values());
+
+        long begin = System.currentTimeMillis();
+        try {
+            writePacked(toWrite);
+            if (pendingChannel != null) {
+                pendingChannel.close();
+                pendingChannel = null;
+                //noinspection ResultOfMethodCallIgnored
+                pendingFile.delete();
+            }
+            Files.move(tmpFile.toPath(), newFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Logger.warn("writing frame cache " + tmpFile + " failed", e);
+            return;
+        }
+        File result = newFile;
+        try {
+            Files.move(newFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            result = file;
+        } catch (IOException e) {
+            // the old file may still be mapped on some platforms, it will be replaced on next launch
+            assert Logger.debug("cannot replace " + file + " now: " + e);
+        }
+        setRecords(read(result));
+        Logger.info("frame cache " + result + " written with " + toWrite.size() + " frames: " +
+            kept + " kept, " + (pending.size() - reused) + " new, " + reused + " reused, " + dropped + " dropped, " +
+            "cost " + (System.currentTimeMillis() - begin) + "ms");
+    }
+
+    private void writePacked(List<Record> toWrite) throws IOException {
+        long indexSize = 0;
+        List<byte[]> names = new ArrayList<>(toWrite.size());
+        for (var r : toWrite) {
+            byte[] nameBytes = r.name.getBytes(StandardCharsets.UTF_8);
+            names.add(nameBytes);
+            indexSize += 2 + nameBytes.length + 4 + 8 + 4 * 4 + 8;
+        }
+        if (indexSize > Integer.MAX_VALUE - HEADER_SIZE - 8) {
+            throw new IOException("too many frames to cache: " + toWrite.size());
+        }
+        long headerSize = HEADER_SIZE + indexSize;
+        long dataStart = (headerSize + 7) / 8 * 8;
+
+        try (FileChannel out = FileChannel.open(tmpFile.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate((int) dataStart).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(toWrite.size());
+            header.putInt((int) indexSize);
+            long offset = dataStart;
+            for (int i = 0; i < toWrite.size(); ++i) {
+                var r = toWrite.get(i);
+                byte[] nameBytes = names.get(i);
+                header.putShort((short) nameBytes.length);
+                header.put(nameBytes);
+                header.putInt(r.crc);
+                header.putLong(r.size);
+                header.putInt(r.x);
+                header.putInt(r.y);
+                header.putInt(r.w);
+                header.putInt(r.h);
+                header.putLong(offset);
+                offset += r.byteSize();
+            }
+            header.position(0);
+            header.limit(header.capacity());
+            writeFully(out, header, 0);
+
+            long pos = dataStart;
+            for (var r : toWrite) {
+                if (r.segment != null) {
+                    var src = r.segment.duplicate();
+                    src.position(r.segmentOffset);
+                    src.limit((int) (r.segmentOffset + r.byteSize()));
+                    writeFully(out, src, pos);
+                } else {
+                    long n = 0;
+                    while (n < r.byteSize()) {
+                        n += pendingChannel.transferTo(r.pendingOffset + n, r.byteSize() - n, out.position(pos + n));
+                    }
+                }
+                pos += r.byteSize();
+            }
+            out.force(false);
+        }
+    }
+
+    private void setRecords(Map<String, Record> records) {
+        Map<String, Record> byContent = new HashMap<>(records.size());
+        for (var r : records.values()) {
+            byContent.putIfAbsent(r.crc + "/" + r.size, r);
+        }
+        this.byContent = byContent;
+        this.records = records;
+    }
+
+    private static String entryKey(ZipEntry entry) {
+        return (int) entry.getCrc() + "/" + entry.getSize();
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            pos += out.write(buf, pos);
+        }
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = in.read(buf, pos);
+            if (n < 0) {
+                throw new IOException("unexpected end of file");
+            }
+            pos += n;
+        }
+    }
+
+    private static void deleteDir(File file) {
+        File[] contents = file.listFiles();
+        if (contents != null) {
+            for (File f : contents) {
+                deleteDir(f);
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    private static class Record {
+        final String name;
+        final int crc;
+        final long size;
+        final int x;
+        final int y;
+        final int w;
+        final int h;
+        final long offset;
+
+        ByteBuffer segment;
+        int segmentOffset;
+        long pendingOffset = -1;
+
+        Record(String name, int crc, long size, int x, int y, int w, int h, long offset) {
+            this.name = name;
+            this.crc = crc;
+            this.size = size;
+            this.x = x;
+            this.y = y;
+            this.w = w;
+            this.h = h;
+            this.offset = offset;
+        }
+
+        boolean matches(ZipEntry entry) {
+            return crc == (int) entry.getCrc() && size == entry.getSize();
+        }
+
+        long byteSize() {
+            return 4L * w * h;
+        }
+
+        IntBuffer pixels() {
+            var buf = segment.duplicate();
+            buf.position(segmentOffset);
+            buf.limit((int) (segmentOffset + byteSize()));
+            return buf.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+    }
+}
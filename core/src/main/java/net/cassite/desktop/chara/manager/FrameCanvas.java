@@ -0,0 +1,110 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.manager;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import net.cassite.desktop.chara.util.XImage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An image borrowed from a small pool, encoded frames are decoded into it when shown.<br>
+ * Each object shows only one frame at a time, and should only be used on the JavaFX thread.
+ *
+ * @see ImageManager#render(String, FrameCanvas)
+ */
+public class FrameCanvas {
+    private static final int MAX_POOLED = 8;
+    // round the size up so that images can be reused by frames of similar sizes
+    private static final int GRANULE = 128;
+    private static final List<WritableImage> pool = new ArrayList<>(); // guarded by pool
+    private static int[] transparent = new int[0]; // only used on the JavaFX thread
+
+    private WritableImage image;
+    private int[] buffer = new int[0];
+    // size of the last frame drawn into the image, whose gutter is already cleared
+    private int drawnWidth = -1;
+    private int drawnHeight = -1;
+
+    XImage draw(EncodedFrame frame, double logicalWidth, double logicalHeight) {
+        int w = frame.width;
+        int h = frame.height;
+        if (image == null || image.getWidth() < w || image.getHeight() < h) {
+            release();
+            image = acquire(w, h);
+        }
+        if (buffer.length < w * h) {
+            buffer = new int[w * h];
+        }
+        frame.decode(buffer);
+        image.getPixelWriter().setPixels(0, 0, w, h, PixelFormat.getIntArgbPreInstance(), buffer, 0, w);
+        if (w != drawnWidth || h != drawnHeight) {
+            clearGutter(w, h);
+            drawnWidth = w;
+            drawnHeight = h;
+        }
+        return new XImage(frame.time, frame.x, frame.y, image, new Rectangle2D(0, 0, w, h), logicalWidth, logicalHeight);
+    }
+
+    // pooled images may be larger than the frame and contain pixels of other frames,
+    // clear the row and column next to the viewport so that they are not blended in when the image is smoothed
+    private void clearGutter(int w, int h) {
+        int iw = (int) image.getWidth();
+        int ih = (int) image.getHeight();
+        if (transparent.length < Math.max(w, h) + 1) {
+            transparent = new int[Math.max(w, h) + 1];
+        }
+        var writer = image.getPixelWriter();
+        var format = PixelFormat.getIntArgbPreInstance();
+        if (w < iw) {
+            writer.setPixels(w, 0, 1, Math.min(h + 1, ih), format, transparent, 0, 1);
+        }
+        if (h < ih) {
+            writer.setPixels(0, h, Math.min(w + 1, iw), 1, format, transparent, 0, w + 1);
+        }
+    }
+
+    /**
+     * Return the image to the pool. Call this method when the image is no longer shown.
+     */
+    public void release() {
+        buffer = new int[0];
+        drawnWidth = -1;
+        drawnHeight = -1;
+        if (image == null) {
+            return;
+        }
+        synchronized (pool) {
+            if (pool.size() < MAX_POOLED) {
+                pool.add(image);
+            }
+        }
+        image = null;
+    }
+
+    private static WritableImage acquire(int w, int h) {
+        synchronized (pool) {
+            WritableImage best = null;
+            for (var img : pool) {
+                if (img.getWidth() < w || img.getHeight() < h) {
+                    continue;
+                }
+                if (best == null || img.getWidth() * img.getHeight() < best.getWidth() * best.getHeight()) {
+                    best = img;
+                }
+            }
+            if (best != null) {
+                pool.remove(best);
+                return best;
+            }
+        }
+        return new WritableImage(roundUp(w), roundUp(h));
+    }
+
+    private static int roundUp(int n) {
+        return (n + GRANULE - 1) / GRANULE * GRANULE;
+    }
+}
@@ -0,0 +1,102 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A group of frames which are loaded and evicted together, usually all frames of one animation.<br>
+ * A group owns the frames which were not owned by other groups when it was created,
+ * and depends on the groups owning the rest of its frames.<br>
+ * Pin the group when any of its frames is shown, the group and all groups it depends on will stay in memory until unpinned.<br>
+ * If frames of the group are still being loaded in background, or the group is being reloaded after eviction,
+ * the group is packed after they are loaded, see {@link #isReady()}.
+ *
+ * @see ImageManager#atlas(List)
+ */
+public class FrameGroup {
+    final List<String> names;
+    final List<String> owned;
+    final Set<FrameGroup> owners = new LinkedHashSet<>();
+
+    // all guarded by ImageManager.class
+    boolean resident = true;
+    int pins = 0;
+    long lastUsed = System.currentTimeMillis();
+    long bytes = 0;
+    // count of owned frames still being loaded in background, or 1 when the evicted group is being reloaded,
+    // only modified when holding ImageManager.class
+    volatile int waiting = 0;
+    // guarded by ImageManager.class
+    final List<Runnable> readyCallbacks = new ArrayList<>();
+
+    FrameGroup(List<String> names, List<String> owned) {
+        this.names = Collections.unmodifiableList(names);
+        this.owned = Collections.unmodifiableList(owned);
+    }
+
+    /**
+     * Reload the frames in background if evicted, and keep them in memory until {@link #unpin()} is called.<br>
+     * Calls to this method and {@link #unpin()} must be paired.
+     */
+    public void pin() {
+        ImageManager.pin(this);
+    }
+
+    /**
+     * Allow the frames to be evicted
+     */
+    public void unpin() {
+        ImageManager.unpin(this);
+    }
+
+    /**
+     * Check whether all frames of this group and the groups it depends on are loaded.<br>
+     * Frames of a group which is not ready should not be shown, otherwise they would be decoded on the calling thread.
+     *
+     * @return true if ready
+     */
+    public boolean isReady() {
+        for (var g : owners) {
+            if (g.waiting > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Run the callback on the JavaFX thread when the group is ready, see {@link #isReady()}
+     *
+     * @param cb callback function
+     */
+    public void whenReady(Runnable cb) {
+        ImageManager.whenReady(this, cb);
+    }
+
+    /**
+     * Get names of all frames in this group
+     *
+     * @return frame names
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+    @Override
+    public String toString() {
+        return "FrameGroup{" +
+            "first=" + (names.isEmpty() ? null : names.get(0)) +
+            ", size=" + names.size() +
+            ", owned=" + owned.size() +
+            ", resident=" + resident +
+            ", pins=" + pins +
+            ", waiting=" + waiting +
+            ", bytes=" + bytes +
+            '}';
+    }
+}
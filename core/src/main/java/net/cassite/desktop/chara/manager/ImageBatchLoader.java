@@ -0,0 +1,110 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.manager;
+
+import net.cassite.desktop.chara.ThreadUtils;
+import net.cassite.desktop.chara.util.XImage;
+
+import java.util.List;
+
+/**
+ * Decode a batch of images on the cpu threads with bounded concurrency,
+ * and commit the results into {@link ImageManager} in order.
+ */
+public class ImageBatchLoader {
+    private final List<String> names;
+    private final XImage[] results;
+    private final int window;
+    private final Runnable cb;
+
+    // all guarded by this
+    private int nextToSubmit = 0;
+    private int nextToCommit = 0;
+    private boolean failed = false;
+
+    private volatile int committedCount = 0;
+    private volatile String lastCommitted = null;
+
+    ImageBatchLoader(List<String> names, Runnable cb) {
+        this.names = names;
+        this.results = new XImage[names.size()];
+        // keep some decoded images waiting for commit, but do not let them grow unbounded
+        this.window = ThreadUtils.get().getCPUParallelism() * 2;
+        this.cb = cb;
+    }
+
+    void start() {
+        if (names.isEmpty()) {
+            cb.run();
+            return;
+        }
+        synchronized (this) {
+            submitMore();
+        }
+    }
+
+    private void submitMore() {
+        while (!failed && nextToSubmit < names.size() && nextToSubmit - nextToCommit < window) {
+            int idx = nextToSubmit++;
+            ThreadUtils.get().submitCPU(() -> decode(idx));
+        }
+    }
+
+    private void decode(int idx) {
+        if (ThreadUtils.get().isShutdown()) {
+            return;
+        }
+        XImage xImage = ImageManager.decode(names.get(idx));
+        boolean finished;
+        synchronized (this) {
+            if (xImage == null) {
+                // error should already been reported, program will be terminated
+                failed = true;
+                return;
+            }
+            results[idx] = xImage;
+            while (nextToCommit < results.length && results[nextToCommit] != null) {
+                String name = names.get(nextToCommit);
+                ImageManager.commit(name, results[nextToCommit]);
+                results[nextToCommit] = null;
+                ++nextToCommit;
+                lastCommitted = name;
+                committedCount = nextToCommit;
+            }
+            finished = nextToCommit == results.length;
+            if (!finished) {
+                submitMore();
+            }
+        }
+        if (finished) {
+            cb.run();
+        }
+    }
+
+    /**
+     * Get count of images to load
+     *
+     * @return total count
+     */
+    public int getTotalCount() {
+        return names.size();
+    }
+
+    /**
+     * Get count of images already committed into the cache
+     *
+     * @return committed count
+     */
+    public int getCommittedCount() {
+        return committedCount;
+    }
+
+    /**
+     * Get name of the last committed image
+     *
+     * @return the image name, or null if nothing committed yet
+     */
+    public String getLastCommitted() {
+        return lastCommitted;
+    }
+}
@@ -2,31 +2,58 @@
 
 package net.cassite.desktop.chara.manager;
 
-import javafx.embed.swing.SwingFXUtils;
+import javafx.geometry.Rectangle2D;
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.image.WritableImage;
 import net.cassite.desktop.chara.Global;
-import net.cassite.desktop.chara.util.Consts;
-import net.cassite.desktop.chara.util.Logger;
-import net.cassite.desktop.chara.util.XImage;
+import net.cassite.desktop.chara.ThreadUtils;
+import net.cassite.desktop.chara.util.*;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.MalformedURLException;
-import java.nio.file.Files;
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.ref.WeakReference;
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 public class ImageManager {
     private ImageManager() {
     }
 
-    private static final Map<String, XImage> cache = new HashMap<>();
+    /**
+     * Max downscale level, images are halved for each level
+     */
+    public static final int MAX_LEVEL = 2;
+    private static final int COMPRESS_MIN_PIXELS = 256 * 256;
+    private static final double COMPRESS_MAX_RATIO = 0.5;
+
+    private static final Map<String, XImage> cache = new ConcurrentHashMap<>();
+    private static final Map<String, EncodedFrame> encoded = new ConcurrentHashMap<>();
+    // frames with identical content share one image
+    private static final Map<ContentKey, WeakReference<Image>> byContent = new ConcurrentHashMap<>();
+    // weak keys: images which are decoded but never committed must not be kept alive
+    private static final Map<Image, ContentKey> keyOfDecoded = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final AtomicInteger dedupFrameCount = new AtomicInteger();
+    private static final AtomicLong dedupFrameBytes = new AtomicLong();
+    private static final AtomicLong compiledLoadCount = new AtomicLong();
+    private static final AtomicLong frameCacheHitCount = new AtomicLong();
+    private static final AtomicLong frameCacheMissCount = new AtomicLong();
+    // downscaled levels of images and encoded frames, index 0 is level 1
+    private static final Map<Object, Object[]> levels = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final Set<Image> standaloneImages = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private static volatile int targetLevel = 0;
+    private static volatile int readyLevel = 0;
+    private static volatile FrameCache frameCache = null;
+    private static CompiledModel compiledModel = null; // published by compiledModelChecked
+    private static volatile boolean compiledModelChecked = false;
+    private static final Map<String, FrameGroup> groupOfFrame = new ConcurrentHashMap<>();
+    private static final List<FrameGroup> groups = new ArrayList<>(); // guarded by ImageManager.class
+    // images being loaded in background
+    private static final Set<String> streaming = ConcurrentHashMap.newKeySet();
 
     /**
      * Get image from cache or load image from model.
@@ -35,250 +62,770 @@ public class ImageManager {
      * @return the minified image and corresponding offset coordinates
      */
     public static XImage load(String name) {
-        if (cache.containsKey(name)) {
-            return cache.get(name);
+        XImage cached = cache.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        EncodedFrame encodedFrame = encoded.get(name);
+        if (encodedFrame != null) {
+            return encodedFrame.toXImage();
         }
-        XImage tryFileCacheImage = tryFileCache(name);
-        if (tryFileCacheImage != null) {
-            cache.put(name, tryFileCacheImage);
-            return tryFileCacheImage;
+        XImage xImage = decode(name);
+        if (xImage == null) {
+            return null;
         }
+        return commit(name, xImage);
+    }
 
-        final String modelFile = Global.modelFilePath;
-        assert modelFile != null;
+    /**
+     * Load all images with the cpu threads. At most a few images are being decoded at the same time,
+     * and the decoded images are committed into the cache in the same order as the <code>names</code> list.
+     *
+     * @param names entry names of the images
+     * @param cb    callback function, will be called on the cpu thread after all images are committed<br>
+     *              newly decoded images are written into the frame cache after that
+     * @return the loader object for you to retrieve the loading progress
+     */
+    public static ImageBatchLoader loadAll(List<String> names, Runnable cb) {
+        var loader = new ImageBatchLoader(names, () -> {
+            flushFrameCache();
+            cb.run();
+        });
+        loader.start();
+        return loader;
+    }
 
-        ZipFile zipFile;
-        try {
-            zipFile = new ZipFile(modelFile);
-        } catch (IOException e) {
-            Logger.fatal("open model file " + modelFile + " failed", e);
-            return null;
+    /**
+     * Load images in background with the cpu threads, after the images needed for the first paint are loaded.<br>
+     * Groups created by {@link #atlas(List)} before their frames are loaded are packed when the frames are ready.
+     *
+     * @param names entry names of the images, images already loaded are skipped
+     * @param cb    callback function, will be called on the cpu thread after all images are committed
+     * @return the loader object for you to retrieve the loading progress
+     */
+    public static ImageBatchLoader stream(List<String> names, Runnable cb) {
+        List<String> toLoad = new ArrayList<>(names.size());
+        for (String name : new LinkedHashSet<>(names)) {
+            if (!cache.containsKey(name) && !encoded.containsKey(name)) {
+                toLoad.add(name);
+            }
         }
-        ZipEntry entry = zipFile.getEntry(Global.model.name() + "/" + name);
-        if (entry == null) {
-            Logger.fatal("entry " + name + " not found, please check and upgrade the model file version");
+        // must be recorded before any group is created
+        streaming.addAll(toLoad);
+        return loadAll(toLoad, () -> {
+            // images failed to load will never arrive
+            for (String name : toLoad) {
+                streamed(name);
+            }
+            cb.run();
+        });
+    }
+
+    // called when an image in the streaming set is committed
+    private static void streamed(String name) {
+        if (!streaming.remove(name)) {
+            return;
+        }
+        synchronized (ImageManager.class) {
+            var group = groupOfFrame.get(name);
+            if (group == null || group.waiting == 0) {
+                return;
+            }
+            if (group.waiting > 1) {
+                --group.waiting;
+                return;
+            }
+        }
+        // the last frame of the group, keep it waiting until packed
+        ThreadUtils.get().submitCPU(() -> {
+            var group = groupOfFrame.get(name);
+            List<Runnable> callbacks = new ArrayList<>();
+            synchronized (ImageManager.class) {
+                long begin = System.currentTimeMillis();
+                packGroup(group);
+                group.waiting = 0;
+                assert Logger.debug("packed streamed " + group + ", cost " + (System.currentTimeMillis() - begin) + "ms");
+                enforceBudget();
+                takeReadyCallbacks(callbacks);
+            }
+            for (var cb : callbacks) {
+                ThreadUtils.get().runOnFX(cb);
+            }
+            int level = targetLevel;
+            if (level != 0) {
+                buildLevel(level);
+            }
+        });
+    }
+
+    // guarded by ImageManager.class
+    private static void takeReadyCallbacks(List<Runnable> callbacks) {
+        for (var g : groups) {
+            if (!g.readyCallbacks.isEmpty() && g.isReady()) {
+                callbacks.addAll(g.readyCallbacks);
+                g.readyCallbacks.clear();
+            }
+        }
+    }
+
+    static void whenReady(FrameGroup group, Runnable cb) {
+        synchronized (ImageManager.class) {
+            if (!group.isReady()) {
+                group.readyCallbacks.add(cb);
+                return;
+            }
+        }
+        ThreadUtils.get().runOnFX(cb);
+    }
+
+    /**
+     * Get image for showing. If the image is kept encoded in memory, it will be decoded into the canvas.<br>
+     * The returned image is valid until the next call with the same canvas.
+     *
+     * @param name   entry name of the image, it is automatically prepended with the model name
+     * @param canvas the canvas to decode encoded images into
+     * @return the minified image and corresponding offset coordinates
+     */
+    public static XImage render(String name, FrameCanvas canvas) {
+        EncodedFrame encodedFrame = encoded.get(name);
+        if (encodedFrame != null) {
+            EncodedFrame scaled = (EncodedFrame) getLevel(encodedFrame, readyLevel);
+            return canvas.draw(scaled == null ? encodedFrame : scaled, encodedFrame.width, encodedFrame.height);
+        }
+        XImage xImage = load(name);
+        if (xImage == null) {
             return null;
         }
-        long timeOfEntry = entry.getTime();
+        return forDisplay(xImage);
+    }
 
-        InputStream inputStream;
-        try {
-            inputStream = zipFile.getInputStream(entry);
-        } catch (IOException e) {
-            Logger.fatal("read entry " + name + " failed", e);
+    /**
+     * Get the downscaled version of the image for the current character size, if ready.<br>
+     * The returned image has the same offsets and size in the original image as the input.
+     *
+     * @param xImage the image
+     * @return the downscaled image, or the input if not downscaled
+     */
+    public static XImage forDisplay(XImage xImage) {
+        int level = readyLevel;
+        Image scaled = (Image) getLevel(xImage.image, level);
+        if (scaled == null) {
+            return xImage;
+        }
+        Rectangle2D viewport = null;
+        if (xImage.viewport != null) {
+            double f = 1 << level;
+            var v = xImage.viewport;
+            viewport = new Rectangle2D(v.getMinX() / f, v.getMinY() / f, v.getWidth() / f, v.getHeight() / f);
+        }
+        return new XImage(xImage.time, xImage.x, xImage.y, scaled, viewport, xImage.getWidth(), xImage.getHeight());
+    }
+
+    private static Object getLevel(Object source, int level) {
+        if (level == 0) {
             return null;
         }
-        Image image = new Image(inputStream);
+        var arr = levels.get(source);
+        if (arr == null) {
+            return null;
+        }
+        return arr[level - 1];
+    }
 
-        try {
-            inputStream.close();
-            zipFile.close();
-        } catch (IOException e) {
-            Logger.error("closing open files failed", e);
+    /**
+     * Get the downscale level currently used for display
+     *
+     * @return the level, 0 means original size
+     */
+    public static int getReadyLevel() {
+        return readyLevel;
+    }
+
+    /**
+     * Set the scale of the character on screen (including the screen output scale).<br>
+     * The images will be downscaled to the nearest level not smaller than the scale in background,
+     * and {@link net.cassite.desktop.chara.util.Events#ImageLevelChanged} is published when done.
+     *
+     * @param scale the scale
+     */
+    public static void setRenderScale(double scale) {
+        int level = 0;
+        while (level < MAX_LEVEL && 1.0 / (1 << (level + 1)) >= scale) {
+            ++level;
+        }
+        if (level == targetLevel) {
+            return;
         }
+        targetLevel = level;
+        int lv = level;
+        ThreadUtils.get().submitCPU(() -> buildLevel(lv));
+    }
 
-        int width = (int) image.getWidth();
-        int height = (int) image.getHeight();
-        var reader = image.getPixelReader();
-        int startX = width;
-        int startY = height;
-        int endX = 0;
-        int endY = 0;
-
-        // scan the image and remove argb = 0 pixels
-        // search for x
-        // 1. foreach line: find the first pixel whose argb is not 0
-        // 2.               find the last pixel whose argb is not 0
-        // 3.               the first pixel must be kept, so check and record in startX
-        // 4.               the last pixel must be kept, so check and record in endX (exclusive, so +1)
-        for (int y = 0; y < height; ++y) {
-            int first = width;
-            int last = 0;
-            for (int x = 0; x < width; ++x) {
-                if (reader.getArgb(x, y) != 0) {
-                    if (first == width) {
-                        first = x;
-                    }
-                    last = x;
-                }
+    private static void buildLevel(int level) {
+        if (level != targetLevel) {
+            return;
+        }
+        long begin = System.currentTimeMillis();
+        if (level != 0) {
+            Map<Object, Boolean> sources = new IdentityHashMap<>();
+            for (XImage xImage : cache.values()) {
+                sources.put(xImage.image, true);
             }
-            if (first < startX) {
-                startX = first;
-            }
-            if (last >= endX) {
-                endX = last + 1;
-            }
-        }
-        // search for y
-        // 1. foreach column: find the first pixel whose argb is not 0
-        // 2.                 find the last pixel whose argb is not 0
-        // 3.                 the first pixel must be kept, so check and record in startY
-        // 4.                 the last pixel must be kept, so check and record in endY (exclusive, so +1)
-        for (int x = 0; x < width; ++x) {
-            int first = height;
-            int last = 0;
-            for (int y = 0; y < height; ++y) {
-                if (reader.getArgb(x, y) != 0) {
-                    if (first == height) {
-                        first = y;
-                    }
-                    last = y;
+            for (EncodedFrame encodedFrame : encoded.values()) {
+                sources.put(encodedFrame, true);
+            }
+            synchronized (standaloneImages) {
+                for (Image image : standaloneImages) {
+                    sources.put(image, true);
                 }
             }
-            if (first < startY) {
-                startY = first;
+            for (Object source : sources.keySet()) {
+                if (level != targetLevel || ThreadUtils.get().isShutdown()) {
+                    // another level is requested
+                    return;
+                }
+                buildLevel(source, level);
             }
-            if (last >= endY) {
-                endY = last;
+        }
+        readyLevel = level;
+        Logger.info("image level " + level + " is ready, cost " + (System.currentTimeMillis() - begin) + "ms");
+        EventBus.publish(Events.ImageLevelChanged, level);
+    }
+
+    private static void buildLevel(Object source, int level) {
+        Object[] arr = levels.computeIfAbsent(source, k -> new Object[MAX_LEVEL]);
+        if (arr[level - 1] != null) {
+            return;
+        }
+        // start from the nearest built level
+        int from = level - 1;
+        while (from > 0 && arr[from - 1] == null) {
+            --from;
+        }
+        Object src = from == 0 ? source : arr[from - 1];
+        int w;
+        int h;
+        int[] px;
+        if (src instanceof EncodedFrame) {
+            var f = (EncodedFrame) src;
+            w = f.width;
+            h = f.height;
+            px = new int[w * h];
+            f.decode(px);
+        } else {
+            var img = (Image) src;
+            w = (int) img.getWidth();
+            h = (int) img.getHeight();
+            px = new int[w * h];
+            img.getPixelReader().getPixels(0, 0, w, h, PixelFormat.getIntArgbPreInstance(), px, 0, w);
+        }
+        for (int lv = from + 1; lv <= level; ++lv) {
+            px = ImageDownscaler.half(px, w, h);
+            w = ImageDownscaler.half(w);
+            h = ImageDownscaler.half(h);
+            if (source instanceof EncodedFrame) {
+                var f = (EncodedFrame) source;
+                arr[lv - 1] = CompressedFrame.encode(f.time, f.x, f.y, w, h, px);
+            } else {
+                WritableImage image = new WritableImage(w, h);
+                image.getPixelWriter().setPixels(0, 0, w, h, PixelFormat.getIntArgbPreInstance(), px, 0, w);
+                arr[lv - 1] = image;
             }
         }
+    }
 
-        int newWidth = endX - startX;
-        int newHeight = endY - startY;
-        WritableImage writableImage = new WritableImage(newWidth, newHeight);
-        writableImage.getPixelWriter().setPixels(0, 0, newWidth, newHeight, reader, startX, startY);
+    /**
+     * Get image from cache or load image from model, the returned image is never a region of an atlas sheet.<br>
+     * Use this method for images which are kept for a long time, otherwise the whole sheet would be retained.
+     *
+     * @param name entry name of the image, it is automatically prepended with the model name
+     * @return the minified image and corresponding offset coordinates
+     */
+    public static XImage loadStandalone(String name) {
+        XImage xImage = load(name);
+        if (xImage == null) {
+            return null;
+        }
+        if (xImage.viewport == null) {
+            standaloneImages.add(xImage.image);
+            return xImage;
+        }
+        int w = (int) xImage.getWidth();
+        int h = (int) xImage.getHeight();
+        WritableImage image = new WritableImage(w, h);
+        image.getPixelWriter().setPixels(0, 0, w, h, xImage.image.getPixelReader(),
+            (int) xImage.viewport.getMinX(), (int) xImage.viewport.getMinY());
+        standaloneImages.add(image);
+        return new XImage(xImage.time, xImage.x, xImage.y, image);
+    }
 
-        Logger.info("loading image: " + name + " from [" + width + "," + height + "] to [" + newWidth + "," + newHeight + "]+(" + startX + "," + startY + ")");
+    /**
+     * Pack the images into atlas sheets, and replace the cached images with the packed ones.<br>
+     * Images already packed are kept in their sheets.<br>
+     * The images are grouped, and the group may be evicted from memory when it's not pinned and memory budget is exceeded.
+     *
+     * @param names entry names of the images, usually all frames of one animation
+     * @return the frame group
+     */
+    public static FrameGroup atlas(List<String> names) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(names));
+        synchronized (ImageManager.class) {
+            List<String> owned = new ArrayList<>(distinct.size());
+            Set<FrameGroup> others = new LinkedHashSet<>();
+            for (String name : distinct) {
+                var owner = groupOfFrame.get(name);
+                if (owner == null) {
+                    owned.add(name);
+                } else {
+                    others.add(owner);
+                }
+            }
+            FrameGroup group = new FrameGroup(distinct, owned);
+            group.owners.add(group);
+            group.owners.addAll(others);
+            int waiting = 0;
+            for (String name : owned) {
+                groupOfFrame.put(name, group);
+                if (streaming.contains(name)) {
+                    ++waiting;
+                }
+            }
+            groups.add(group);
+            if (waiting == 0) {
+                packGroup(group);
+            } else {
+                // packed when all frames are loaded
+                group.resident = false;
+                group.waiting = waiting;
+            }
+            return group;
+        }
+    }
 
-        XImage xImage = new XImage(timeOfEntry, startX, startY, writableImage);
-        cache.put(name, xImage);
-        writeCacheFile(name, xImage);
-        return xImage;
+    // guarded by ImageManager.class
+    private static void packGroup(FrameGroup group) {
+        List<String> toPack = new ArrayList<>(group.owned.size());
+        List<XImage> images = new ArrayList<>(group.owned.size());
+        Map<Image, EncodedFrame> encodedOfImage = new IdentityHashMap<>();
+        long bytes = 0;
+        int rleCount = 0;
+        int tiledCount = 0;
+        for (String name : group.owned) {
+            EncodedFrame encodedFrame = encoded.get(name);
+            if (encodedFrame != null) {
+                bytes += encodedFrame.bytes();
+                continue;
+            }
+            XImage xImage = load(name);
+            if (xImage == null || xImage.viewport != null) {
+                continue;
+            }
+            // identical frames share the encoded data
+            encodedFrame = encodedOfImage.get(xImage.image);
+            if (encodedFrame != null && encodedFrame.x == xImage.x && encodedFrame.y == xImage.y) {
+                encoded.put(name, encodedFrame);
+                cache.remove(name);
+                continue;
+            }
+            // large frames with big transparent, flat or repeated areas are kept encoded instead of packed
+            if (xImage.getWidth() * xImage.getHeight() >= COMPRESS_MIN_PIXELS) {
+                encodedFrame = encode(xImage);
+                if (encodedFrame != null) {
+                    if (encodedFrame instanceof TiledFrame) {
+                        ++tiledCount;
+                    } else {
+                        ++rleCount;
+                    }
+                    encodedOfImage.put(xImage.image, encodedFrame);
+                    encoded.put(name, encodedFrame);
+                    cache.remove(name);
+                    bytes += encodedFrame.bytes();
+                    continue;
+                }
+            }
+            toPack.add(name);
+            images.add(xImage);
+        }
+        XImage[] packed = AtlasPacker.pack(images);
+        Map<Image, Boolean> distinctImages = new IdentityHashMap<>();
+        for (int i = 0; i < packed.length; ++i) {
+            distinctImages.put(packed[i].image, true);
+            cache.put(toPack.get(i), packed[i]);
+        }
+        for (Image image : distinctImages.keySet()) {
+            bytes += bytesOf(image);
+        }
+        group.bytes = bytes;
+        group.resident = true;
+        if (toPack.size() > 1) {
+            assert Logger.debug("packed " + toPack.size() + " images into " + distinctImages.size() + " sheets, first: " + toPack.get(0));
+        }
+        if (rleCount + tiledCount > 0) {
+            assert Logger.debug("encoded " + rleCount + " images with rle and " + tiledCount + " images with tiles of " + group);
+        }
     }
 
-    private static XImage tryFileCache(String name) {
-        File cacheFile = new File(System.getProperty("user.home") + "/" + Consts.CACHE_DIR_NAME + "/" + Global.model.name() + "/" + name);
-        if (!cacheFile.isDirectory()) {
-            return null;
+    // guarded by ImageManager.class
+    // choose the smaller one of rle and tiles, or null if neither saves enough memory
+    private static EncodedFrame encode(XImage xImage) {
+        int w = (int) xImage.getWidth();
+        int h = (int) xImage.getHeight();
+        int[] px = new int[w * h];
+        xImage.image.getPixelReader().getPixels(0, 0, w, h, PixelFormat.getIntArgbPreInstance(), px, 0, w);
+        long limit = (long) (w * (long) h * 4 * COMPRESS_MAX_RATIO);
+
+        var rle = CompressedFrame.encode(xImage, px);
+        var plan = TileStore.plan(px, w, h, xImage.x, xImage.y);
+        if (plan.bytes() < rle.bytes()) {
+            if (plan.bytes() <= limit) {
+                return TileStore.commit(plan, xImage.time, xImage.x, xImage.y, w, h);
+            }
+        } else if (rle.bytes() <= limit) {
+            return rle;
         }
+        return null;
+    }
 
-        File imageFile = new File(cacheFile.getAbsolutePath() + "/image.png");
-        File metaFile = new File(cacheFile.getAbsolutePath() + "/meta");
+    static void pin(FrameGroup group) {
+        List<FrameGroup> toReload = new ArrayList<>();
+        synchronized (ImageManager.class) {
+            long now = System.currentTimeMillis();
+            for (var g : group.owners) {
+                if (!g.resident && g.waiting == 0) {
+                    // not ready until reloaded in background, see FrameGroup#isReady()
+                    g.waiting = 1;
+                    toReload.add(g);
+                }
+                ++g.pins;
+                g.lastUsed = now;
+            }
+            enforceBudget();
+        }
+        if (!toReload.isEmpty()) {
+            ThreadUtils.get().submitCPU(() -> reload(toReload));
+        }
+    }
 
-        if (!imageFile.isFile()) {
-            assert Logger.debug(name + " dir exists but image file not found");
-            return null;
+    private static void reload(List<FrameGroup> toReload) {
+        List<Runnable> callbacks = new ArrayList<>();
+        synchronized (ImageManager.class) {
+            for (var g : toReload) {
+                long begin = System.currentTimeMillis();
+                packGroup(g);
+                g.waiting = 0;
+                Logger.info("reloaded " + g + ", cost " + (System.currentTimeMillis() - begin) + "ms");
+            }
+            enforceBudget();
+            takeReadyCallbacks(callbacks);
         }
-        if (!metaFile.isFile()) {
-            assert Logger.debug(name + " dir exists but meta file not found");
-            return null;
+        for (var cb : callbacks) {
+            ThreadUtils.get().runOnFX(cb);
         }
+        int level = targetLevel;
+        if (level != 0) {
+            // downscale the reloaded images
+            buildLevel(level);
+        }
+    }
 
-        String metaStr;
-        try {
-            metaStr = Files.readString(metaFile.toPath());
-        } catch (IOException e) {
-            Logger.error("reading " + metaFile + " failed", e);
-            return null;
+    static void unpin(FrameGroup group) {
+        synchronized (ImageManager.class) {
+            long now = System.currentTimeMillis();
+            for (var g : group.owners) {
+                if (g.pins > 0) {
+                    --g.pins;
+                }
+                g.lastUsed = now;
+            }
         }
-        String[] meta = metaStr.split("\n");
-        if (meta.length < 3) {
-            Logger.error(name + " has meta file but content is wrong:\n" + metaStr);
-            return null;
+    }
+
+    // guarded by ImageManager.class
+    private static void enforceBudget() {
+        long budget = getBudgetBytes();
+        if (budget <= 0) {
+            return;
         }
-        long lastTime;
-        try {
-            lastTime = Long.parseLong(meta[0].trim());
-        } catch (NumberFormatException e) {
-            Logger.error(name + " has meta file but first line is not timestamp:\n" + metaStr);
-            return null;
+        long total = getResidentBytes();
+        if (total <= budget) {
+            return;
         }
-        int x;
-        try {
-            x = Integer.parseInt(meta[1].trim());
-        } catch (NumberFormatException e) {
-            Logger.error(name + " has meta file but second line is not x offset:\n" + metaStr);
-            return null;
+        List<FrameGroup> candidates = new ArrayList<>();
+        for (var g : groups) {
+            if (g.resident && g.pins == 0) {
+                candidates.add(g);
+            }
         }
-        int y;
-        try {
-            y = Integer.parseInt(meta[2].trim());
-        } catch (NumberFormatException e) {
-            Logger.error(name + " has meta file but third line is not y offset:\n" + metaStr);
-            return null;
+        candidates.sort(Comparator.comparingLong(g -> g.lastUsed));
+        for (var g : candidates) {
+            if (total <= budget) {
+                break;
+            }
+            Map<EncodedFrame, Boolean> released = new IdentityHashMap<>();
+            for (String name : g.owned) {
+                cache.remove(name);
+                var encodedFrame = encoded.remove(name);
+                if (encodedFrame != null && released.put(encodedFrame, true) == null) {
+                    encodedFrame.release();
+                }
+            }
+            g.resident = false;
+            // g.bytes does not include the shared tiles and the downscaled levels, so count again
+            total = getResidentBytes();
+            assert Logger.debug("evicted " + g);
+        }
+        if (total > budget) {
+            assert Logger.debug("resident images " + (total / 1024 / 1024) + "MB still exceed the budget " + (budget / 1024 / 1024) + "MB");
         }
+    }
 
-        String modelFile = Global.modelFilePath;
-        assert modelFile != null;
-        ZipFile zipFile;
-        try {
-            zipFile = new ZipFile(modelFile);
-        } catch (IOException e) {
-            Logger.error("open model file failed", e);
-            return null;
+    private static long getBudgetBytes() {
+        Integer mb = ConfigManager.get().getImageMemoryBudget();
+        if (mb == null) {
+            mb = Consts.DEFAULT_IMAGE_MEMORY_BUDGET_MB;
         }
-        ZipEntry entry = zipFile.getEntry(Global.model.name() + "/" + name);
-        if (entry == null) {
-            Logger.error("cannot find entry " + name + " in model");
-            return null;
+        return mb * 1024L * 1024L;
+    }
+
+    /**
+     * Get memory used by images in the cache, calculated by width * height * 4, or size of the encoded data and tiles for encoded images.<br>
+     * Downscaled levels of the images are included.
+     *
+     * @return bytes
+     */
+    public static long getResidentBytes() {
+        Map<Image, Boolean> distinctImages = new IdentityHashMap<>();
+        for (XImage xImage : cache.values()) {
+            distinctImages.put(xImage.image, true);
+        }
+        Map<EncodedFrame, Boolean> distinctEncoded = new IdentityHashMap<>();
+        for (EncodedFrame encodedFrame : encoded.values()) {
+            distinctEncoded.put(encodedFrame, true);
+        }
+        long bytes = 0;
+        for (EncodedFrame encodedFrame : distinctEncoded.keySet()) {
+            bytes += encodedFrame.bytes();
+        }
+        synchronized (ImageManager.class) {
+            bytes += TileStore.bytes();
+        }
+        // levels of evicted images are not counted, they are only weakly referenced and will be collected
+        Map<Object, Boolean> sources = new IdentityHashMap<>();
+        sources.putAll(distinctImages);
+        sources.putAll(distinctEncoded);
+        synchronized (standaloneImages) {
+            for (Image image : standaloneImages) {
+                sources.put(image, true);
+            }
+        }
+        for (Object source : sources.keySet()) {
+            var arr = levels.get(source);
+            if (arr == null) {
+                continue;
+            }
+            for (Object o : arr) {
+                if (o instanceof Image) {
+                    bytes += bytesOf((Image) o);
+                } else if (o instanceof EncodedFrame) {
+                    bytes += ((EncodedFrame) o).bytes();
+                }
+            }
         }
+        for (Image image : distinctImages.keySet()) {
+            bytes += bytesOf(image);
+        }
+        return bytes;
+    }
 
-        long expectedTime = entry.getTime();
+    private static long bytesOf(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
 
-        try {
-            zipFile.close();
-        } catch (IOException e) {
-            Logger.error("closing model open file failed", e);
+    static XImage commit(String name, XImage xImage) {
+        ContentKey key = keyOfDecoded.remove(xImage.image);
+        if (key != null) {
+            var ref = new WeakReference<>(xImage.image);
+            var existingRef = byContent.putIfAbsent(key, ref);
+            Image existing = existingRef == null ? null : existingRef.get();
+            if (existingRef != null && existing == null) {
+                byContent.put(key, ref);
+            } else if (existing != null && existing != xImage.image) {
+                dedupFrameCount.incrementAndGet();
+                dedupFrameBytes.addAndGet(bytesOf(xImage.image));
+                xImage = new XImage(xImage.time, xImage.x, xImage.y, existing);
+            }
         }
+        var prev = cache.putIfAbsent(name, xImage);
+        streamed(name);
+        return prev == null ? xImage : prev;
+    }
 
-        if (expectedTime != lastTime) {
-            Logger.info(name + " cache expired");
-            deleteDir(cacheFile);
-            return null;
+    /**
+     * Log how much memory is saved by sharing identical frames and tiles
+     */
+    public static void logDedupReport() {
+        int frames;
+        int tiles;
+        long referencedTiles;
+        long emptyTiles;
+        synchronized (ImageManager.class) {
+            frames = groupOfFrame.size();
+            tiles = TileStore.uniqueCount();
+            referencedTiles = TileStore.referencedCount();
+            emptyTiles = TileStore.emptyCount();
         }
+        long tileBytes = 4L * TileStore.SIZE * TileStore.SIZE;
+        Logger.info("image dedup report of model " + Global.model.name() + ": " +
+            "identical frames: " + dedupFrameCount.get() + " of " + (cache.size() + encoded.size()) + " images, " +
+            "saved " + (dedupFrameBytes.get() / 1024 / 1024) + "MB; " +
+            "tiles of " + frames + " animation frames: " + tiles + " unique of " + referencedTiles + " non-empty, " +
+            emptyTiles + " empty skipped, " +
+            "ratio " + (referencedTiles == 0 ? "-" : String.format("%.2f", (double) tiles / referencedTiles)) + ", " +
+            "saved " + ((referencedTiles - tiles) * tileBytes / 1024 / 1024) + "MB; " +
+            "resident " + (getResidentBytes() / 1024 / 1024) + "MB");
+    }
 
-        Logger.info("loading from cache: " + name);
-        try {
-            return new XImage(lastTime, x, y, new Image(imageFile.toURI().toURL().toString()));
-        } catch (MalformedURLException e) {
-            Logger.shouldNotReachHere(e);
+    /**
+     * Get counters of how images are loaded, for the startup report
+     *
+     * @return counter name to value
+     */
+    public static Map<String, Long> getLoadStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("images_compiled", compiledLoadCount.get());
+        stats.put("images_frame_cache_hit", frameCacheHitCount.get());
+        stats.put("images_frame_cache_miss", frameCacheMissCount.get());
+        stats.put("images_identical", (long) dedupFrameCount.get());
+        stats.put("images_resident_bytes", getResidentBytes());
+        return stats;
+    }
+
+    /**
+     * Decode the image from frame cache or from the model, the result will NOT be put into the memory cache.<br>
+     * This method can be called from any thread.
+     *
+     * @param name entry name of the image
+     * @return the minified image and corresponding offset coordinates
+     */
+    static XImage decode(String name) {
+        XImage cached = cache.get(name);
+        if (cached != null) {
+            return cached;
+        }
+
+        final ModelArchive archive = ModelArchive.get();
+        assert archive != null;
+
+        ZipEntry entry = archive.getEntry(Global.model.name() + "/" + name);
+        if (entry == null) {
+            Logger.fatal("entry " + name + " not found, please check and upgrade the model file version");
             return null;
         }
-    }
 
-    private static void deleteDir(File file) {
-        File[] contents = file.listFiles();
-        if (contents != null) {
-            for (File f : contents) {
-                deleteDir(f);
+        CompiledModel compiledModel = getCompiledModel();
+        var compiled = compiledModel == null ? null : compiledModel.get(name);
+        if (compiled != null) {
+            IntBuffer pixels = CompiledModel.readPixels(archive, entry, compiled);
+            if (pixels == null) {
+                // the entry holds raw pixels instead of png, so it cannot be decoded in the normal way
+                Logger.fatal("compiled frame " + name + " cannot be read, please compile the model file again");
+                return null;
             }
+            assert Logger.debug("loading compiled frame: " + name);
+            compiledLoadCount.incrementAndGet();
+            WritableImage image = new WritableImage(compiled.w, compiled.h);
+            image.getPixelWriter().setPixels(0, 0, compiled.w, compiled.h, PixelFormat.getIntArgbPreInstance(), pixels.duplicate(), compiled.w);
+            keyOfDecoded.put(image, ContentKey.of(compiled.w, compiled.h, pixels));
+            return new XImage(entry.getTime(), compiled.x, compiled.y, image);
         }
-        //noinspection ResultOfMethodCallIgnored
-        file.delete();
-    }
 
-    private static void writeCacheFile(String name, XImage image) {
-        File cacheFile = new File(System.getProperty("user.home") + "/" + Consts.CACHE_DIR_NAME + "/" + Global.model.name() + "/" + name);
-        if (cacheFile.exists()) {
-            if (!cacheFile.isDirectory()) {
-                Logger.error(cacheFile.getAbsolutePath() + " exists but is not directory");
-                return;
+        FrameCache frameCache = getFrameCache();
+        XImage fromFrameCache = frameCache.get(name, entry);
+        if (fromFrameCache != null) {
+            assert Logger.debug("loading from cache: " + name);
+            frameCacheHitCount.incrementAndGet();
+            ContentKey key = frameCache.contentKey(entry);
+            if (key != null) {
+                keyOfDecoded.put(fromFrameCache.image, key);
             }
-        } else if (!cacheFile.mkdirs()) {
-            Logger.error(cacheFile.getAbsolutePath() + " mkdirs failed");
-            return;
+            return fromFrameCache;
         }
 
-        File metaFile = new File(cacheFile.getAbsolutePath() + "/meta");
+        frameCacheMissCount.incrementAndGet();
+        InputStream inputStream;
         try {
-            Files.write(metaFile.toPath(), ("" +
-                "" + image.time + "\n" +
-                "" + image.x + "\n" +
-                "" + image.y + "\n" +
-                "").getBytes());
+            inputStream = archive.getInputStream(entry);
         } catch (IOException e) {
-            Logger.error("writing " + metaFile + " failed", e);
-            return;
+            Logger.fatal("read entry " + name + " failed", e);
+            return null;
         }
+        Image image = new Image(inputStream);
 
-        File imageFile = new File(cacheFile.getAbsolutePath() + "/image.png");
-        BufferedImage bi = SwingFXUtils.fromFXImage(image.image, null);
         try {
-            ImageIO.write(bi, "PNG", imageFile);
+            inputStream.close();
         } catch (IOException e) {
-            Logger.error("writing " + imageFile + " failed", e);
+            Logger.error("closing open files failed", e);
+        }
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        var reader = image.getPixelReader();
+        var bounds = ImageTrimmer.trim(reader, width, height);
+        if (bounds == null) {
+            // fully transparent, keep one pixel so that the image is still valid
+            bounds = new ImageTrimmer.Bounds(0, 0, 1, 1);
+        }
+        int startX = bounds.x;
+        int startY = bounds.y;
+        int newWidth = bounds.width;
+        int newHeight = bounds.height;
+        WritableImage writableImage = new WritableImage(newWidth, newHeight);
+        writableImage.getPixelWriter().setPixels(0, 0, newWidth, newHeight, reader, startX, startY);
+
+        Logger.info("loading image: " + name + " from [" + width + "," + height + "] to " + bounds);
+
+        int[] pixels = new int[newWidth * newHeight];
+        writableImage.getPixelReader().getPixels(0, 0, newWidth, newHeight, PixelFormat.getIntArgbPreInstance(), pixels, 0, newWidth);
+        frameCache.put(name, entry, startX, startY, newWidth, newHeight, pixels);
+        keyOfDecoded.put(writableImage, ContentKey.of(newWidth, newHeight, pixels, 0, pixels.length));
+
+        return new XImage(entry.getTime(), startX, startY, writableImage);
+    }
+
+    private static CompiledModel getCompiledModel() {
+        if (compiledModelChecked) {
+            return compiledModel;
+        }
+        synchronized (ImageManager.class) {
+            if (!compiledModelChecked) {
+                compiledModel = CompiledModel.open(ModelArchive.get(), Global.model.name());
+                compiledModelChecked = true;
+            }
+            return compiledModel;
+        }
+    }
+
+    private static FrameCache getFrameCache() {
+        FrameCache frameCache = ImageManager.frameCache;
+        if (frameCache != null) {
+            return frameCache;
+        }
+        synchronized (ImageManager.class) {
+            if (ImageManager.frameCache == null) {
+                ImageManager.frameCache = FrameCache.open(Global.model.name());
+            }
+            return ImageManager.frameCache;
+        }
+    }
+
+    /**
+     * Write newly decoded images into the frame cache file in background.
+     */
+    public static void flushFrameCache() {
+        FrameCache frameCache = ImageManager.frameCache;
+        ModelArchive archive = ModelArchive.get();
+        if (frameCache == null || archive == null) {
             return;
         }
-        Logger.info("caching " + name + " done");
+        frameCache.flush(archive, Global.model.name() + "/");
     }
 }
@@ -0,0 +1,383 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.manager;
+
+import net.cassite.desktop.chara.util.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The opened model file.<br>
+ * The model file is opened only once and kept open until the app shuts down,
+ * all entries are indexed by name when opening.<br>
+ * If the model file is compiled by {@link ModelCompiler}, entries are stored uncompressed and aligned,
+ * and their positions are listed in the offset table entry.
+ * The file is then mapped into memory once, and entries are read from the mapping without inflating.
+ * <pre>
+ * offset table entry offsets.idx (little endian):
+ * +-------+---------+-------+-------------+
+ * | magic | version | count | index * cnt |
+ * +-------+---------+-------+-------------+
+ * index:
+ * +----------+------+---------------+-------------+------+
+ * | name_len | name | header_offset | data_offset | size |
+ * +----------+------+---------------+-------------+------+
+ *   short     utf8        long           long       long
+ * </pre>
+ * Retrieving entries, buffers and input streams is thread safe.
+ */
+public class ModelArchive {
+    static final String OFFSET_TABLE_NAME = "offsets.idx";
+    static final int OFFSET_TABLE_MAGIC = 0x4f4d4843; // CHMO
+    static final int OFFSET_TABLE_VERSION = 1;
+    // data of mapped entries starts at a multiple of this value
+    static final int ALIGN = 8;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final long MAX_SEGMENT_SIZE = 1024L * 1024 * 1024;
+
+    private static volatile ModelArchive instance = null;
+
+    private final String path;
+    private final ZipFile zipFile;
+    private final Map<String, ZipEntry> index;
+    private final List<ZipEntry> entries;
+    private final Map<String, Slot> mapped;
+    private volatile boolean closed = false;
+
+    private ModelArchive(String path) throws IOException {
+        this.path = path;
+        this.zipFile = new ZipFile(path);
+
+        Map<String, ZipEntry> index = new HashMap<>();
+        List<ZipEntry> entries = new ArrayList<>(zipFile.size());
+        var ite = zipFile.entries();
+        while (ite.hasMoreElements()) {
+            var entry = ite.nextElement();
+            index.put(entry.getName(), entry);
+            entries.add(entry);
+        }
+        this.index = Collections.unmodifiableMap(index);
+        this.entries = Collections.unmodifiableList(entries);
+        this.mapped = map();
+    }
+
+    private Map<String, Slot> map() {
+        var tableEntry = index.get(OFFSET_TABLE_NAME);
+        if (tableEntry == null) {
+            return Collections.emptyMap();
+        }
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            ByteBuffer table;
+            try (InputStream in = zipFile.getInputStream(tableEntry)) {
+                table = ByteBuffer.wrap(in.readAllBytes()).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            if (table.getInt() != OFFSET_TABLE_MAGIC || table.getInt() != OFFSET_TABLE_VERSION) {
+                Logger.warn("offset table of model file " + path + " is not supported, entries will be inflated");
+                return Collections.emptyMap();
+            }
+            long fileSize = channel.size();
+            int count = table.getInt();
+            List<Slot> slots = new ArrayList<>(count);
+            for (int i = 0; i < count; ++i) {
+                byte[] nameBytes = new byte[table.getShort() & 0xffff];
+                table.get(nameBytes);
+                var slot = new Slot(new String(nameBytes, StandardCharsets.UTF_8), table.getLong(), table.getLong(), table.getLong());
+                var entry = index.get(slot.name);
+                if (entry == null || entry.getMethod() != ZipEntry.STORED || entry.getSize() != slot.size
+                    || slot.headerOffset < 0 || slot.dataOffset < slot.headerOffset + LOCAL_HEADER_SIZE
+                    || slot.dataOffset + slot.size > fileSize) {
+                    Logger.warn("offset table of model file " + path + " does not match entry " + slot.name + ", entries will be inflated");
+                    return Collections.emptyMap();
+                }
+                slots.add(slot);
+            }
+            slots.sort(Comparator.comparingLong(slot -> slot.headerOffset));
+            mapSegments(channel, slots);
+
+            Map<String, Slot> ret = new HashMap<>(count);
+            for (var slot : slots) {
+                // make sure the offsets point to the local headers of the entries
+                var seg = slot.segment.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+                int header = slot.position - (int) (slot.dataOffset - slot.headerOffset);
+                if (seg.getInt(header) != LOCAL_HEADER_SIGNATURE ||
+                    LOCAL_HEADER_SIZE + (seg.getShort(header + 26) & 0xffff) + (seg.getShort(header + 28) & 0xffff)
+                        != slot.dataOffset - slot.headerOffset) {
+                    Logger.warn("local header of entry " + slot.name + " in model file " + path + " is not valid, entries will be inflated");
+                    return Collections.emptyMap();
+                }
+                ret.put(slot.name, slot);
+            }
+            Logger.info("model file " + path + " is mapped with " + ret.size() + " entries");
+            return ret;
+        } catch (IOException | RuntimeException e) {
+            Logger.warn("mapping model file " + path + " failed, entries will be inflated", e);
+            return Collections.emptyMap();
+        }
+    }
+
+    // a single mapping cannot exceed 2G, so split the file into multiple segments
+    private static void mapSegments(FileChannel channel, List<Slot> sorted) throws IOException {
+        int begin = 0;
+        while (begin < sorted.size()) {
+            long segStart = sorted.get(begin).headerOffset;
+            int end = begin;
+            long segEnd = segStart;
+            while (end < sorted.size()) {
+                var slot = sorted.get(end);
+                long slotEnd = slot.dataOffset + slot.size;
+                if (end != begin && slotEnd - segStart > MAX_SEGMENT_SIZE) {
+                    break;
+                }
+                segEnd = Math.max(segEnd, slotEnd);
+                ++end;
+            }
+            var seg = channel.map(FileChannel.MapMode.READ_ONLY, segStart, segEnd - segStart);
+            for (int i = begin; i < end; ++i) {
+                var slot = sorted.get(i);
+                slot.segment = seg;
+                slot.position = (int) (slot.dataOffset - segStart);
+            }
+            begin = end;
+        }
+    }
+
+    /**
+     * Open the model file and make it the current archive.<br>
+     * The previously opened archive will be closed.
+     *
+     * @param path path to the model file
+     * @return the opened archive
+     * @throws IOException failed to open the file
+     */
+    public static ModelArchive open(String path) throws IOException {
+        synchronized (ModelArchive.class) {
+            var archive = new ModelArchive(path);
+            var old = instance;
+            instance = archive;
+            if (old != null) {
+                old.close();
+            }
+            Logger.info("model file " + path + " opened with " + archive.entries.size() + " entries");
+            return archive;
+        }
+    }
+
+    /**
+     * Get the current archive
+     *
+     * @return the archive, or null if not opened yet
+     */
+    public static ModelArchive get() {
+        return instance;
+    }
+
+    /**
+     * Close the current archive. This should only be called when the app shuts down.
+     */
+    public static void release() {
+        synchronized (ModelArchive.class) {
+            var archive = instance;
+            instance = null;
+            if (archive != null) {
+                archive.close();
+            }
+        }
+    }
+
+    /**
+     * Get path to the model file
+     *
+     * @return the path
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Get the underlying zip file. Do NOT close it.
+     *
+     * @return the zip file
+     */
+    public ZipFile getZipFile() {
+        return zipFile;
+    }
+
+    /**
+     * Get all entries of the model, in the order they are stored in the file
+     *
+     * @return entries list
+     */
+    public List<ZipEntry> entries() {
+        return entries;
+    }
+
+    /**
+     * Get an entry by full name
+     *
+     * @param name full name of the entry
+     * @return the entry, or null if not found
+     */
+    public ZipEntry getEntry(String name) {
+        return index.get(name);
+    }
+
+    /**
+     * Check whether entries of the model file are read from memory mapping
+     *
+     * @return true if mapped
+     */
+    public boolean isMapped() {
+        return !mapped.isEmpty();
+    }
+
+    /**
+     * Get content of the entry from memory mapping without copying.
+     *
+     * @param entry the entry retrieved from this archive
+     * @return a read only buffer containing exactly the content of the entry,
+     * or null if the entry is not mapped, see {@link #isMapped()}
+     */
+    public ByteBuffer getBuffer(ZipEntry entry) {
+        var slot = mapped.get(entry.getName());
+        if (slot == null) {
+            return null;
+        }
+        var buf = slot.segment.duplicate();
+        buf.position(slot.position);
+        buf.limit((int) (slot.position + slot.size));
+        return buf.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Read the entry as an utf-8 string
+     *
+     * @param entry the entry retrieved from this archive
+     * @return content of the entry
+     * @throws IOException failed to read the entry
+     */
+    public String readString(ZipEntry entry) throws IOException {
+        var buf = getBuffer(entry);
+        if (buf != null) {
+            return StandardCharsets.UTF_8.decode(buf).toString();
+        }
+        try (InputStream in = getInputStream(entry)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Open an input stream of the entry.<br>
+     * The stream reads from memory mapping if the entry is mapped.<br>
+     * Closing the stream will not close the archive.
+     *
+     * @param entry the entry retrieved from this archive
+     * @return input stream
+     * @throws IOException failed to read the entry
+     */
+    public InputStream getInputStream(ZipEntry entry) throws IOException {
+        if (closed) {
+            throw new IOException("model file " + path + " is closed");
+        }
+        var buf = getBuffer(entry);
+        if (buf != null) {
+            return new BufferInputStream(buf);
+        }
+        return zipFile.getInputStream(entry);
+    }
+
+    /**
+     * Open an input stream of the entry.<br>
+     * Closing the stream will not close the archive.
+     *
+     * @param name full name of the entry
+     * @return input stream, or null if not found or failed to read
+     */
+    public InputStream getInputStream(String name) {
+        var entry = index.get(name);
+        if (entry == null) {
+            assert Logger.debug("entry " + name + " not found");
+            return null;
+        }
+        try {
+            return getInputStream(entry);
+        } catch (IOException e) {
+            Logger.fatal("failed to get input stream from entry " + name, e);
+            return null;
+        }
+    }
+
+    private void close() {
+        closed = true;
+        try {
+            zipFile.close();
+        } catch (IOException ignore) {
+        }
+        Logger.info("model file " + path + " closed");
+    }
+
+    private static class Slot {
+        final String name;
+        final long headerOffset;
+        final long dataOffset;
+        final long size;
+
+        ByteBuffer segment;
+        int position;
+
+        Slot(String name, long headerOffset, long dataOffset, long size) {
+            this.name = name;
+            this.headerOffset = headerOffset;
+            this.dataOffset = dataOffset;
+            this.size = size;
+        }
+    }
+
+    private static class BufferInputStream extends InputStream {
+        private final ByteBuffer buf;
+
+        BufferInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? buf.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buf.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int k = (int) Math.max(0, Math.min(n, buf.remaining()));
+            buf.position(buf.position() + k);
+            return k;
+        }
+
+        @Override
+        public int available() {
+            return buf.remaining();
+        }
+    }
+}
@@ -0,0 +1,297 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.manager;
+
+import net.cassite.desktop.chara.model.Model;
+import net.cassite.desktop.chara.util.Consts;
+import net.cassite.desktop.chara.util.ImageTrimmer;
+import net.cassite.desktop.chara.util.Logger;
+import net.cassite.desktop.chara.util.Utils;
+import vjson.JSON;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Compile a model file at build time, so that the app does not need to trim or cache the frames on first run.<br>
+ * Every image in {@link Model#requiredImages()} is decoded, trimmed and stored uncompressed as premultiplied argb,
+ * offsets of the frames are written into the index entry, see {@link CompiledModel}.<br>
+ * All entries are stored uncompressed and aligned, and listed in the offset table,
+ * so that the app can map the file and read entries without inflating, see {@link ModelArchive}.<br>
+ * The model file is replaced in place. Usage:
+ * <pre>
+ * java net.cassite.desktop.chara.manager.ModelCompiler {model file} [{model file} ...]
+ * </pre>
+ */
+public class ModelCompiler {
+    // same as zipalign, an extra field to pad the local header
+    private static final short ALIGNMENT_EXTRA_ID = (short) 0xD935;
+    private static final Pattern MIN_CODE_VERSION = Pattern.compile("(\"compatibleMinCodeVersion\"\\s*:\\s*)(\\d+)");
+
+    private ModelCompiler() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("usage: ModelCompiler {model file} [{model file} ...]");
+            System.exit(1);
+            return;
+        }
+        for (String path : args) {
+            compile(new File(path));
+        }
+        // the model code may start non-daemon threads
+        System.exit(0);
+    }
+
+    /**
+     * Compile the model file in place
+     *
+     * @param file the model file
+     * @throws Exception failed to compile
+     */
+    public static void compile(File file) throws Exception {
+        long begin = System.currentTimeMillis();
+        File tmp = new File(file.getPath() + ".tmp");
+        String name;
+        int frameCount = 0;
+        long pngBytes = 0;
+        long rawBytes = 0;
+        try (ZipFile zip = new ZipFile(file)) {
+            var modelJsonEntry = zip.getEntry("model.json");
+            if (modelJsonEntry == null) {
+                throw new IOException("model configuration not found in " + file);
+            }
+            String modelJson = new String(zip.getInputStream(modelJsonEntry).readAllBytes(), StandardCharsets.UTF_8);
+            var o = (JSON.Object) JSON.parse(modelJson);
+            name = o.getString("name");
+            if (zip.getEntry(name + "/" + CompiledModel.INDEX_NAME) != null) {
+                Logger.info(file + " is already compiled");
+                return;
+            }
+            Set<String> images = new HashSet<>(requiredImages(zip, name, o.getString("modelClass")));
+
+            ByteArrayOutputStream index = new ByteArrayOutputStream();
+            DataOutputStream indexOut = new DataOutputStream(index);
+            ByteArrayOutputStream offsets = new ByteArrayOutputStream();
+            DataOutputStream offsetsOut = new DataOutputStream(offsets);
+            int offsetCount = 0;
+            var counter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try (ZipOutputStream out = new ZipOutputStream(counter)) {
+                var ite = zip.entries();
+                while (ite.hasMoreElements()) {
+                    var entry = ite.nextElement();
+                    String prefix = name + "/";
+                    String frameName = entry.getName().startsWith(prefix) ? entry.getName().substring(prefix.length()) : null;
+                    if (frameName == null || entry.isDirectory() || !images.contains(frameName)) {
+                        byte[] content = zip.getInputStream(entry).readAllBytes();
+                        if (entry == modelJsonEntry) {
+                            content = requireThisVersion(new String(content, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+                        }
+                        if (putStored(out, counter, entry, content, offsetsOut)) {
+                            ++offsetCount;
+                        }
+                        continue;
+                    }
+
+                    BufferedImage image;
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        image = ImageIO.read(in);
+                    }
+                    if (image == null) {
+                        throw new IOException("cannot decode image " + entry.getName());
+                    }
+                    int w = image.getWidth();
+                    int h = image.getHeight();
+                    int[] argb = image.getRGB(0, 0, w, h, null, 0, w);
+                    premultiply(argb);
+                    var bounds = ImageTrimmer.trim(argb, 0, w, w, h);
+                    if (bounds == null) {
+                        // fully transparent, keep one pixel so that the image is still valid
+                        bounds = new ImageTrimmer.Bounds(0, 0, 1, 1);
+                    }
+                    byte[] raw = toBytes(argb, w, bounds);
+                    putStored(out, counter, entry, raw, offsetsOut);
+                    ++offsetCount;
+
+                    byte[] nameBytes = frameName.getBytes(StandardCharsets.UTF_8);
+                    indexOut.writeShort(Short.reverseBytes((short) nameBytes.length));
+                    indexOut.write(nameBytes);
+                    indexOut.writeInt(Integer.reverseBytes(bounds.x));
+                    indexOut.writeInt(Integer.reverseBytes(bounds.y));
+                    indexOut.writeInt(Integer.reverseBytes(bounds.width));
+                    indexOut.writeInt(Integer.reverseBytes(bounds.height));
+
+                    ++frameCount;
+                    pngBytes += entry.getCompressedSize();
+                    rawBytes += raw.length;
+                    assert Logger.debug("compiled " + entry.getName() + " from [" + w + "," + h + "] to " + bounds);
+                }
+
+                ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(CompiledModel.MAGIC);
+                header.putInt(CompiledModel.VERSION);
+                header.putInt(frameCount);
+                var indexEntry = new ZipEntry(name + "/" + CompiledModel.INDEX_NAME);
+                indexEntry.setTime(modelJsonEntry.getTime());
+                ByteArrayOutputStream indexContent = new ByteArrayOutputStream();
+                indexContent.write(header.array());
+                indexContent.write(index.toByteArray());
+                putStored(out, counter, indexEntry, indexContent.toByteArray(), offsetsOut);
+                ++offsetCount;
+
+                // the table is read before mapping, so it is compressed as a normal entry
+                ByteBuffer tableHeader = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+                tableHeader.putInt(ModelArchive.OFFSET_TABLE_MAGIC);
+                tableHeader.putInt(ModelArchive.OFFSET_TABLE_VERSION);
+                tableHeader.putInt(offsetCount);
+                out.putNextEntry(new ZipEntry(ModelArchive.OFFSET_TABLE_NAME));
+                out.write(tableHeader.array());
+                out.write(offsets.toByteArray());
+                out.closeEntry();
+            }
+        } catch (Exception e) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            throw e;
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Logger.info("model " + name + " in " + file + " compiled with " + frameCount + " frames, " +
+            "from " + (pngBytes / 1024 / 1024) + "MB to " + (rawBytes / 1024 / 1024) + "MB, " +
+            "cost " + (System.currentTimeMillis() - begin) + "ms");
+    }
+
+    /**
+     * Write the entry uncompressed, the content starts at a multiple of {@link ModelArchive#ALIGN}
+     *
+     * @return true if the entry is recorded in the offset table, directories are not recorded
+     */
+    private static boolean putStored(ZipOutputStream out, CountingOutputStream counter, ZipEntry src, byte[] content,
+                                     DataOutputStream offsetsOut) throws IOException {
+        var stored = new ZipEntry(src.getName());
+        stored.setTime(src.getTime());
+        stored.setMethod(ZipEntry.STORED);
+        stored.setSize(content.length);
+        stored.setCompressedSize(content.length);
+        var crc = new CRC32();
+        crc.update(content);
+        stored.setCrc(crc.getValue());
+
+        byte[] nameBytes = src.getName().getBytes(StandardCharsets.UTF_8);
+        long headerOffset = counter.count;
+        // local header is 30 bytes, and the extra field is at least 6 bytes: id, len, alignment
+        long dataOffset = headerOffset + 30 + nameBytes.length + 6;
+        int padding = (int) ((ModelArchive.ALIGN - dataOffset % ModelArchive.ALIGN) % ModelArchive.ALIGN);
+        ByteBuffer extra = ByteBuffer.allocate(6 + padding).order(ByteOrder.LITTLE_ENDIAN);
+        extra.putShort(ALIGNMENT_EXTRA_ID);
+        extra.putShort((short) (2 + padding));
+        extra.putShort((short) ModelArchive.ALIGN);
+        stored.setExtra(extra.array());
+
+        out.putNextEntry(stored);
+        if (counter.count != dataOffset + padding) {
+            Logger.warn("entry " + src.getName() + " is not aligned");
+        }
+        dataOffset = counter.count;
+        out.write(content);
+        out.closeEntry();
+        if (src.isDirectory()) {
+            return false;
+        }
+
+        offsetsOut.writeShort(Short.reverseBytes((short) nameBytes.length));
+        offsetsOut.write(nameBytes);
+        offsetsOut.writeLong(Long.reverseBytes(headerOffset));
+        offsetsOut.writeLong(Long.reverseBytes(dataOffset));
+        offsetsOut.writeLong(Long.reverseBytes(content.length));
+        return true;
+    }
+
+    private static List<String> requiredImages(ZipFile zip, String name, String modelClass) {
+        try {
+            Class<?> cls = Utils.loadClassFromZipFile(zip, "compile-" + name, modelClass);
+            return ((Model) cls.getConstructor().newInstance()).requiredImages();
+        } catch (Exception e) {
+            Logger.warn("cannot get required images from " + modelClass + ", all png images will be compiled", e);
+        }
+        List<String> ls = new ArrayList<>();
+        var ite = zip.entries();
+        while (ite.hasMoreElements()) {
+            var entry = ite.nextElement();
+            if (!entry.isDirectory() && entry.getName().startsWith(name + "/") && entry.getName().toLowerCase().endsWith(".png")) {
+                ls.add(entry.getName().substring(name.length() + 1));
+            }
+        }
+        return ls;
+    }
+
+    // older versions cannot read compiled frames
+    private static String requireThisVersion(String modelJson) {
+        Matcher m = MIN_CODE_VERSION.matcher(modelJson);
+        if (!m.find() || Integer.parseInt(m.group(2)) >= Consts.VERSION_NUM) {
+            return modelJson;
+        }
+        return m.replaceFirst("$1" + Consts.VERSION_NUM);
+    }
+
+    // same as the conversion from IntArgb to IntArgbPre in JavaFX
+    private static void premultiply(int[] argb) {
+        for (int i = 0; i < argb.length; ++i) {
+            int p = argb[i];
+            int a = p >>> 24;
+            if (a == 0xff) {
+                continue;
+            }
+            if (a == 0) {
+                argb[i] = 0;
+                continue;
+            }
+            int r = (((p >> 16) & 0xff) * a + 0x7f) / 0xff;
+            int g = (((p >> 8) & 0xff) * a + 0x7f) / 0xff;
+            int b = ((p & 0xff) * a + 0x7f) / 0xff;
+            argb[i] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            ++count;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    private static byte[] toBytes(int[] argb, int stride, ImageTrimmer.Bounds bounds) {
+        ByteBuffer buf = ByteBuffer.allocate(4 * bounds.width * bounds.height).order(ByteOrder.LITTLE_ENDIAN);
+        var ints = buf.asIntBuffer();
+        for (int y = 0; y < bounds.height; ++y) {
+            ints.put(argb, (bounds.y + y) * stride + bounds.x, bounds.width);
+        }
+        return buf.array();
+    }
+}
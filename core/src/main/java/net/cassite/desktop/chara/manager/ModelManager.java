@@ -13,33 +13,29 @@ import net.cassite.desktop.chara.util.Rec;
 import net.cassite.desktop.chara.util.Utils;
 import vjson.JSON;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 public class ModelManager {
     public static Model load(String modelFile) {
-        ZipFile zipFile;
+        ModelArchive archive;
         try {
-            zipFile = new ZipFile(modelFile);
+            archive = ModelArchive.open(modelFile);
         } catch (IOException e) {
             Logger.fatal("open model file failed", e);
             return null;
         }
-        ZipEntry modelJsonEntry = zipFile.getEntry("model.json");
+        ZipEntry modelJsonEntry = archive.getEntry("model.json");
         if (modelJsonEntry == null) {
             Logger.fatal("invalid model file, model configuration not found in " + modelFile);
             return null;
         }
-        JSON.Instance<?> modelJsonInst = readJson(zipFile, modelJsonEntry);
+        JSON.Instance<?> modelJsonInst = readJson(archive, modelJsonEntry);
         if (modelJsonInst == null) {
             return null;
         }
@@ -76,7 +72,7 @@ public class ModelManager {
         // init code
         Model selected;
         try {
-            Class<?> cls = Utils.loadClassFromZipFile(zipFile, "model-" + name, modelClass);
+            Class<?> cls = Utils.loadClassFromZipFile(archive.getZipFile(), "model-" + name, modelClass);
             selected = (Model) cls.getConstructor().newInstance();
         } catch (Exception e) {
             Logger.fatal("init code failed: " + e.getMessage(), e);
@@ -102,15 +98,13 @@ public class ModelManager {
 
         // get words
         var words = new HashMap<String, WordsSelector>();
-        var entries = zipFile.entries();
-        while (entries.hasMoreElements()) {
-            var entry = entries.nextElement();
+        for (var entry : archive.entries()) {
             var prefix = "words/";
             if (!entry.isDirectory() && entry.getName().startsWith(prefix)) {
                 var wordsKey = entry.getName().substring(prefix.length());
                 WordsSelector wordsSelector;
                 try {
-                    wordsSelector = getWords(zipFile, entry);
+                    wordsSelector = getWords(archive, entry);
                 } catch (Exception e) {
                     Logger.fatal("getting words from model failed: " + entry.getName(), e);
                     return null;
@@ -128,37 +122,15 @@ public class ModelManager {
         var intMap = new HashMap<String, Integer>();
         var doubleMap = new HashMap<String, Double>();
         var intRecMap = new HashMap<String, Rec>();
-        entries = zipFile.entries();
-        while (entries.hasMoreElements()) {
-            var entry = entries.nextElement();
+        for (var entry : archive.entries()) {
             var prefix = "values/";
             if (!entry.isDirectory() && entry.getName().startsWith(prefix) && entry.getName().endsWith(".json")) {
-                var valuesJsonInst = readJson(zipFile, entry);
+                var valuesJsonInst = readJson(archive, entry);
                 if (valuesJsonInst == null) {
                     return null;
                 }
                 try {
-                    var o = (JSON.Object) valuesJsonInst;
-                    if (o.containsKey("integers")) {
-                        var integers = o.getObject("integers");
-                        for (String key : integers.keySet()) {
-                            intMap.put(key, integers.getInt(key));
-                        }
-                    }
-                    if (o.containsKey("doubles")) {
-                        var doubles = o.getObject("doubles");
-                        for (String key : doubles.keySet()) {
-                            doubleMap.put(key, doubles.getDouble(key));
-                        }
-                    }
-                    if (o.containsKey("integerRectangles")) {
-                        var integerRec = o.getObject("integerRectangles");
-                        for (String key : integerRec.keySet()) {
-                            var arr = integerRec.getArray(key);
-                            Rec rec = new Rec(arr.getInt(0), arr.getInt(1), arr.getInt(2), arr.getInt(3));
-                            intRecMap.put(key, rec);
-                        }
-                    }
+                    readValues((JSON.Object) valuesJsonInst, intMap, doubleMap, intRecMap);
                 } catch (Exception e) {
                     Logger.fatal("invalid model configuration format: " + entry.getName(), e);
                     return null;
@@ -172,30 +144,14 @@ public class ModelManager {
         // init
         selected.init(modelInitConfig);
 
-        // done
-        try {
-            zipFile.close();
-        } catch (IOException ignore) {
-        }
+        // done, the archive is kept open until the app shuts down
         return selected;
     }
 
-    private static JSON.Instance<?> readJson(ZipFile zipFile, ZipEntry entry) {
-        InputStream inputStream;
+    private static JSON.Instance<?> readJson(ModelArchive archive, ZipEntry entry) {
+        String content;
         try {
-            inputStream = zipFile.getInputStream(entry);
-        } catch (IOException e) {
-            Logger.fatal("get input stream from model configuration failed: " + entry.getName(), e);
-            return null;
-        }
-        BufferedReader br = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-        StringBuilder sb = new StringBuilder();
-        String line;
-        try {
-            while ((line = br.readLine()) != null) {
-                sb.append(line);
-            }
-            inputStream.close();
+            content = archive.readString(entry);
         } catch (IOException e) {
             Logger.fatal("reading model configuration failed: " + entry.getName(), e);
             return null;
@@ -204,7 +160,7 @@ public class ModelManager {
         //noinspection rawtypes
         JSON.Instance inst;
         try {
-            inst = JSON.parse(sb.toString());
+            inst = JSON.parse(content);
         } catch (Exception e) {
             Logger.fatal("invalid model configuration format: " + entry.getName(), e);
             return null;
@@ -212,15 +168,38 @@ public class ModelManager {
         return inst;
     }
 
-    private static WordsSelector getWords(ZipFile zipFile, ZipEntry wordsEntry) throws Exception {
-        var inputStream = zipFile.getInputStream(wordsEntry);
-        BufferedReader br = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    static void readValues(JSON.Object o, Map<String, Integer> intMap, Map<String, Double> doubleMap, Map<String, Rec> intRecMap) {
+        if (o.containsKey("integers")) {
+            var integers = o.getObject("integers");
+            for (String key : integers.keySet()) {
+                intMap.put(key, integers.getInt(key));
+            }
+        }
+        if (o.containsKey("doubles")) {
+            var doubles = o.getObject("doubles");
+            for (String key : doubles.keySet()) {
+                doubleMap.put(key, doubles.getDouble(key));
+            }
+        }
+        if (o.containsKey("integerRectangles")) {
+            var integerRec = o.getObject("integerRectangles");
+            for (String key : integerRec.keySet()) {
+                var arr = integerRec.getArray(key);
+                Rec rec = new Rec(arr.getInt(0), arr.getInt(1), arr.getInt(2), arr.getInt(3));
+                intRecMap.put(key, rec);
+            }
+        }
+    }
+
+    private static WordsSelector getWords(ModelArchive archive, ZipEntry wordsEntry) throws Exception {
+        return parseWords(archive.readString(wordsEntry));
+    }
 
+    static WordsSelector parseWords(String content) throws Exception {
         List<Words> wordsList = new LinkedList<>();
         StringBuilder sb = new StringBuilder();
         int state = 0; // 0: normal ==(met -----BEGIN WORDS-----)==> 1: reading ==(met -----END WORDS-----)==> 0
-        String line;
-        while ((line = br.readLine()) != null) {
+        for (String line : content.split("\n")) {
             line = line.trim();
             if (state == 0) {
                 if (line.equals("-----BEGIN WORDS-----")) {
@@ -251,8 +230,6 @@ public class ModelManager {
         Words[] wordsArray = new Words[wordsList.size()];
         wordsList.toArray(wordsArray);
 
-        inputStream.close();
-
         return new WordsSelector(wordsArray);
     }
 
@@ -304,6 +281,11 @@ public class ModelManager {
     }
 
     public static InputStream getEntryFromModel(String name) {
-        return Utils.getEntryFromZipFile(Global.modelFilePath, name);
+        var archive = ModelArchive.get();
+        if (archive == null) {
+            // not loaded by ModelManager, open the file directly
+            return Utils.getEntryFromZipFile(Global.modelFilePath, name);
+        }
+        return archive.getInputStream(name);
     }
 }
@@ -69,6 +69,10 @@ public class PluginManager {
             return;
         }
 
+        if (Global.trainingModelFile != null) {
+            loadPlugins(Arrays.asList(files), cb);
+            return;
+        }
         selectPluginsToLoad(files, selected ->
             loadPlugins(selected, cb));
     }
@@ -159,10 +163,12 @@ public class PluginManager {
         List<Tuple<Plugin, ZipFile>> allPlugins = new LinkedList<>();
         for (File f : selected) {
             try {
+                long begin = System.currentTimeMillis();
                 var tup = preLoad(f);
                 if (tup == null) {
                     return; // error should already been reported, program will be terminated
                 }
+                StartupReport.plugin(tup.left.name(), "preload", begin);
                 allPlugins.add(tup);
             } catch (Exception e) {
                 Logger.fatal("loading plugin " + f.getAbsolutePath() + " failed, please remove the plugin", e);
@@ -193,7 +199,9 @@ public class PluginManager {
                 }
             });
             for (var fp : pluginsOrderedList) {
+                long begin = System.currentTimeMillis();
                 fp.plugin.launch();
+                StartupReport.plugin(fp.plugin.name(), "launch", begin);
                 Logger.info("plugin " + fp.plugin.name() + " loaded");
             }
             // callback
@@ -298,7 +306,9 @@ public class PluginManager {
         var handle = iterator.next();
         label.setText(handle._3.entrySuffix);
 
-        ThreadUtils.get().submit(() -> {
+        // handlers may block on IO, e.g. registering a large font
+        ThreadUtils.get().submitBlocking(() -> {
+            long begin = System.currentTimeMillis();
             String entry = handle._1.name() + "/" + handle._3.entrySuffix;
             InputStream inputStream = Utils.getEntryFromZipFile(handle._2, entry);
             if (inputStream == null) {
@@ -310,6 +320,7 @@ public class PluginManager {
                 handle._3.handler.accept(inputStream, new Callback<>() {
                     @Override
                     protected void onSucceeded(Void aVoid) {
+                        StartupReport.plugin(handle._1.name(), handle._3.entrySuffix, begin);
                         try {
                             inputStream.close();
                         } catch (IOException ignore) {
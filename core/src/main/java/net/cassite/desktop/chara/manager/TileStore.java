@@ -0,0 +1,226 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.manager;
+
+import java.util.*;
+
+/**
+ * Shared storage of 32x32 tiles, identical tiles of all frames are stored only once.<br>
+ * Tiles are aligned to the original (untrimmed) image, so unchanged regions of different frames produce identical tiles.<br>
+ * Tiles are reference counted, and removed when no frame uses them.<br>
+ * All methods are guarded by <code>ImageManager.class</code>.
+ */
+class TileStore {
+    static final int SIZE = 32;
+    static final int EMPTY = -1;
+
+    private static final Map<TileKey, Integer> idOf = new HashMap<>();
+    private static final List<int[]> tiles = new ArrayList<>();
+    private static final List<Integer> refs = new ArrayList<>();
+    private static final Deque<Integer> freeIds = new ArrayDeque<>();
+    private static long referencedCount = 0;
+    private static long emptyCount = 0;
+
+    private TileStore() {
+    }
+
+    /**
+     * Split the frame into tiles without storing them
+     *
+     * @param px pixels of the trimmed frame
+     * @param w  width of the frame
+     * @param h  height of the frame
+     * @param x  x offset of the frame in the original image
+     * @param y  y offset of the frame in the original image
+     * @return the split result
+     */
+    static Plan plan(int[] px, int w, int h, int x, int y) {
+        int offX = x % SIZE;
+        int offY = y % SIZE;
+        int cols = (offX + w + SIZE - 1) / SIZE;
+        int rows = (offY + h + SIZE - 1) / SIZE;
+        TileKey[] keys = new TileKey[cols * rows];
+        Set<TileKey> newKeys = new HashSet<>();
+        for (int r = 0; r < rows; ++r) {
+            for (int c = 0; c < cols; ++c) {
+                int[] tile = new int[SIZE * SIZE];
+                boolean empty = true;
+                // tile pixel (tx, ty) is frame pixel (c * SIZE + tx - offX, r * SIZE + ty - offY)
+                for (int ty = 0; ty < SIZE; ++ty) {
+                    int fy = r * SIZE + ty - offY;
+                    if (fy < 0 || fy >= h) {
+                        continue;
+                    }
+                    int fx0 = Math.max(0, c * SIZE - offX);
+                    int fx1 = Math.min(w, c * SIZE + SIZE - offX);
+                    if (fx0 >= fx1) {
+                        continue;
+                    }
+                    int tx0 = fx0 - (c * SIZE - offX);
+                    System.arraycopy(px, fy * w + fx0, tile, ty * SIZE + tx0, fx1 - fx0);
+                    if (empty) {
+                        for (int i = fy * w + fx0, end = fy * w + fx1; i < end; ++i) {
+                            if (px[i] != 0) {
+                                empty = false;
+                                break;
+                            }
+                        }
+                    }
+                }
+                if (empty) {
+                    continue;
+                }
+                var key = new TileKey(tile);
+                keys[r * cols + c] = key;
+                if (!idOf.containsKey(key)) {
+                    newKeys.add(key);
+                }
+            }
+        }
+        return new Plan(offX, offY, cols, rows, keys, newKeys.size());
+    }
+
+    /**
+     * Store the tiles
+     *
+     * @param plan the split result
+     * @param time last modification time of the frame
+     * @param x    x offset of the frame
+     * @param y    y offset of the frame
+     * @param w    width of the frame
+     * @param h    height of the frame
+     * @return the tiled frame
+     */
+    static TiledFrame commit(Plan plan, long time, int x, int y, int w, int h) {
+        int[] ids = new int[plan.keys.length];
+        int[][] data = new int[plan.keys.length][];
+        for (int i = 0; i < ids.length; ++i) {
+            var key = plan.keys[i];
+            if (key == null) {
+                ids[i] = EMPTY;
+                ++emptyCount;
+                continue;
+            }
+            Integer id = idOf.get(key);
+            if (id == null) {
+                if (freeIds.isEmpty()) {
+                    id = tiles.size();
+                    tiles.add(key.pixels);
+                    refs.add(0);
+                } else {
+                    id = freeIds.poll();
+                    tiles.set(id, key.pixels);
+                }
+                idOf.put(key, id);
+            }
+            refs.set(id, refs.get(id) + 1);
+            ++referencedCount;
+            ids[i] = id;
+            data[i] = tiles.get(id);
+        }
+        return new TiledFrame(time, x, y, w, h, plan.offX, plan.offY, plan.cols, ids, data);
+    }
+
+    static void release(int[] ids) {
+        for (int id : ids) {
+            if (id == EMPTY) {
+                --emptyCount;
+                continue;
+            }
+            --referencedCount;
+            int n = refs.get(id) - 1;
+            refs.set(id, n);
+            if (n == 0) {
+                idOf.remove(new TileKey(tiles.get(id)));
+                tiles.set(id, null);
+                freeIds.add(id);
+            }
+        }
+    }
+
+    /**
+     * Get count of distinct tiles stored
+     *
+     * @return count
+     */
+    static int uniqueCount() {
+        return idOf.size();
+    }
+
+    /**
+     * Get count of non-empty tiles used by all frames
+     *
+     * @return count
+     */
+    static long referencedCount() {
+        return referencedCount;
+    }
+
+    /**
+     * Get count of transparent tiles skipped
+     *
+     * @return count
+     */
+    static long emptyCount() {
+        return emptyCount;
+    }
+
+    /**
+     * Get memory used by stored tiles
+     *
+     * @return bytes
+     */
+    static long bytes() {
+        return (long) idOf.size() * SIZE * SIZE * 4;
+    }
+
+    static class Plan {
+        final int offX;
+        final int offY;
+        final int cols;
+        final int rows;
+        final TileKey[] keys;
+        final int newTileCount;
+
+        Plan(int offX, int offY, int cols, int rows, TileKey[] keys, int newTileCount) {
+            this.offX = offX;
+            this.offY = offY;
+            this.cols = cols;
+            this.rows = rows;
+            this.keys = keys;
+            this.newTileCount = newTileCount;
+        }
+
+        /**
+         * Get memory to be used if the frame is stored as tiles
+         *
+         * @return bytes
+         */
+        long bytes() {
+            return (long) newTileCount * SIZE * SIZE * 4 + keys.length * 12L;
+        }
+    }
+
+    private static class TileKey {
+        final int[] pixels;
+        final int hash;
+
+        TileKey(int[] pixels) {
+            this.pixels = pixels;
+            this.hash = Arrays.hashCode(pixels);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            TileKey tileKey = (TileKey) o;
+            return hash == tileKey.hash && Arrays.equals(pixels, tileKey.pixels);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.manager;
+
+import java.util.Arrays;
+
+/**
+ * A trimmed frame rebuilt from tiles shared in {@link TileStore}.
+ */
+class TiledFrame extends EncodedFrame {
+    private static final int SIZE = TileStore.SIZE;
+
+    private final int offX;
+    private final int offY;
+    private final int cols;
+    private final int[] ids;
+    private final int[][] tiles;
+
+    TiledFrame(long time, int x, int y, int width, int height, int offX, int offY, int cols, int[] ids, int[][] tiles) {
+        super(time, x, y, width, height);
+        this.offX = offX;
+        this.offY = offY;
+        this.cols = cols;
+        this.ids = ids;
+        this.tiles = tiles;
+    }
+
+    @Override
+    void decode(int[] dst) {
+        for (int i = 0; i < tiles.length; ++i) {
+            int c = i % cols;
+            int r = i / cols;
+            int fx0 = Math.max(0, c * SIZE - offX);
+            int fx1 = Math.min(width, c * SIZE + SIZE - offX);
+            int fy0 = Math.max(0, r * SIZE - offY);
+            int fy1 = Math.min(height, r * SIZE + SIZE - offY);
+            if (fx0 >= fx1 || fy0 >= fy1) {
+                continue;
+            }
+            int[] tile = tiles[i];
+            int tx0 = fx0 - (c * SIZE - offX);
+            for (int fy = fy0; fy < fy1; ++fy) {
+                if (tile == null) {
+                    Arrays.fill(dst, fy * width + fx0, fy * width + fx1, 0);
+                } else {
+                    int ty = fy - (r * SIZE - offY);
+                    System.arraycopy(tile, ty * SIZE + tx0, dst, fy * width + fx0, fx1 - fx0);
+                }
+            }
+        }
+    }
+
+    @Override
+    long bytes() {
+        // tiles are counted in the tile store
+        return ids.length * 12L;
+    }
+
+    @Override
+    void release() {
+        TileStore.release(ids);
+    }
+}
@@ -55,6 +55,19 @@ public interface Model {
      */
     List<String> requiredImages();
 
+    /**
+     * Retrieve the images needed to show the character for the first time,
+     * usually the default images of all <code>Anima</code>s and all <code>Static</code>s.<br>
+     * The character is shown after these images are loaded,
+     * and the rest of {@link #requiredImages()} are loaded in background.<br>
+     * By default all required images are loaded before showing the character.
+     *
+     * @return the image list
+     */
+    default List<String> firstPaintImages() {
+        return requiredImages();
+    }
+
     /**
      * Get resource handlers of the model<br>
      * The list will be used on the startup loading bar.<br>
@@ -45,7 +45,9 @@ public interface Plugin {
     /**
      * Launch the plugin.<br>
      * You should put initiating operations into this function,
-     * and these operations should be reverted in <code>release</code> function.
+     * and these operations should be reverted in <code>release</code> function.<br>
+     * The function is called on JavaFX thread,
+     * blocking operations should be submitted with {@link net.cassite.desktop.chara.ThreadUtils#submitBlocking(Runnable)}.
      */
     void launch();
 
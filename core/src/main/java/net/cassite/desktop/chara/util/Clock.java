@@ -0,0 +1,253 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.util;
+
+import javafx.animation.AnimationTimer;
+import net.cassite.desktop.chara.ThreadUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * The time source of animations and delayed tasks.<br>
+ * By default, time is read from the system, and callbacks run on JavaFX thread driven by the JavaFX pulse.
+ * Delayed tasks are kept in a {@link TimingWheel} on JavaFX thread, which is advanced by the pulse while animating,
+ * and otherwise woken up once for the earliest timers, so timers due at the same time run together.
+ * No wakeup is armed while a pulse is running.
+ * Use {@link #use(Clock)} with a {@link VirtualClock} to drive them manually, e.g. in benchmarks.
+ * In that case callbacks run on the thread advancing the clock.
+ */
+public abstract class Clock {
+    private static volatile Clock current = new SystemClock();
+
+    /**
+     * Get the clock in use
+     *
+     * @return the clock
+     */
+    public static Clock get() {
+        return current;
+    }
+
+    /**
+     * Replace the clock, which should be called before anything is animated or delayed
+     *
+     * @param clock the new clock
+     */
+    public static void use(Clock clock) {
+        current = clock;
+        Logger.info("using clock " + clock);
+    }
+
+    /**
+     * Current time in millis, same as {@link System#currentTimeMillis()} for the system clock
+     *
+     * @return time millis
+     */
+    public abstract long currentTimeMillis();
+
+    /**
+     * Current value of the high-resolution time source, same as {@link System#nanoTime()} for the system clock
+     *
+     * @return time nanos
+     */
+    public abstract long nanoTime();
+
+    /**
+     * Run the task on the clock's thread after a delay
+     *
+     * @param runnable task to run
+     * @param delay    delay in millis
+     * @return an object for you to cancel the task, or null if the task cannot be scheduled
+     */
+    public abstract Scheduled schedule(Runnable runnable, int delay);
+
+    /**
+     * Periodically run the task on the clock's thread.<br>
+     * Runs which are missed, e.g. when the system is sleeping, are skipped.
+     *
+     * @param runnable     task to run
+     * @param initialDelay delay in millis before the first run
+     * @param period       millis between two runs
+     * @return an object for you to cancel the task, or null if the task cannot be scheduled
+     */
+    public abstract Scheduled scheduleAtFixedRate(Runnable runnable, int initialDelay, int period);
+
+    /**
+     * Run the task on the clock's thread as soon as possible
+     *
+     * @param runnable task to run
+     */
+    public abstract void execute(Runnable runnable);
+
+    /**
+     * Create a pulse, which calls the handler once per frame with {@link #nanoTime()} while started
+     *
+     * @param handler the handler
+     * @return a stopped pulse
+     */
+    public abstract Pulse pulse(LongConsumer handler);
+
+    /**
+     * A frame callback, similar to <code>AnimationTimer</code>
+     */
+    public interface Pulse {
+        /**
+         * Start calling the handler
+         */
+        void start();
+
+        /**
+         * Stop calling the handler
+         */
+        void stop();
+    }
+
+    private static class SystemClock extends Clock {
+        private final long baseNanos = System.nanoTime();
+        // the following fields are only accessed on JavaFX thread
+        private final TimingWheel wheel = new TimingWheel(0);
+        private Scheduled wakeup;
+        private long wakeupMillis = -1;
+        private int wakeupGeneration = 0;
+        private int runningPulses = 0;
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public Scheduled schedule(Runnable runnable, int delay) {
+            return add(new TimingWheel.Timer(runnable, delay, 0));
+        }
+
+        @Override
+        public Scheduled scheduleAtFixedRate(Runnable runnable, int initialDelay, int period) {
+            if (period <= 0) {
+                throw new IllegalArgumentException("period must be positive: " + period);
+            }
+            return add(new TimingWheel.Timer(runnable, initialDelay, period));
+        }
+
+        private Scheduled add(TimingWheel.Timer timer) {
+            if (ThreadUtils.get().isShutdown()) {
+                return null;
+            }
+            execute(() -> {
+                if (timer.cancelled) {
+                    return;
+                }
+                wheel.add(timer, nowMillis());
+                if (runningPulses == 0 && (wakeupMillis == -1 || timer.expires * TimingWheel.TICK < wakeupMillis)) {
+                    rescheduleWakeup();
+                }
+            });
+            return new Scheduled(() -> {
+                timer.cancelled = true;
+                execute(() -> wheel.remove(timer));
+            });
+        }
+
+        private long nowMillis() {
+            return (System.nanoTime() - baseNanos) / 1_000_000;
+        }
+
+        private void advance() {
+            long now = nowMillis();
+            wheel.advance(now);
+            if (runningPulses == 0 && (wakeupMillis == -1 || now >= wakeupMillis)) {
+                rescheduleWakeup();
+            }
+        }
+
+        private void cancelWakeup() {
+            if (wakeup != null) {
+                wakeup.cancel();
+                wakeup = null;
+            }
+            wakeupMillis = -1;
+            ++wakeupGeneration;
+        }
+
+        private void rescheduleWakeup() {
+            long next = wheel.nextMillis();
+            if (next == wakeupMillis) {
+                return;
+            }
+            if (wakeup != null) {
+                wakeup.cancel();
+                wakeup = null;
+            }
+            wakeupMillis = next;
+            if (next == -1) {
+                return;
+            }
+            int generation = ++wakeupGeneration;
+            long delay = Math.max(0, next - nowMillis());
+            wakeup = ThreadUtils.get().scheduleFX(() -> {
+                if (generation != wakeupGeneration) {
+                    return; // cancelled but already fired
+                }
+                wakeup = null;
+                wakeupMillis = -1;
+                advance();
+            }, (int) delay, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void execute(Runnable runnable) {
+            ThreadUtils.get().runOnFX(runnable);
+        }
+
+        @Override
+        public Pulse pulse(LongConsumer handler) {
+            AnimationTimer timer = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    advance();
+                    handler.accept(now);
+                }
+            };
+            // pulses are started and stopped on JavaFX thread
+            return new Pulse() {
+                private boolean running = false;
+
+                @Override
+                public void start() {
+                    if (running) {
+                        return;
+                    }
+                    running = true;
+                    if (++runningPulses == 1) {
+                        // the wheel is advanced by the pulse from now on
+                        cancelWakeup();
+                    }
+                    timer.start();
+                }
+
+                @Override
+                public void stop() {
+                    if (!running) {
+                        return;
+                    }
+                    running = false;
+                    timer.stop();
+                    if (--runningPulses == 0) {
+                        rescheduleWakeup();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return "SystemClock";
+        }
+    }
+}
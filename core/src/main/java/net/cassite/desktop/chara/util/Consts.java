@@ -25,6 +25,9 @@ public class Consts {
 
     public static final String LOCALE_FILE_NAME = "locale";
 
+    public static final int DEFAULT_IMAGE_MEMORY_BUDGET_MB = 512;
+    public static final int TRAINING_RUN_SECONDS = 10;
+
     public static final int BAR_WIDTH = 255;
     public static final int BOND_BAR_MARGIN_TOP = 5;
     public static final int BOND_BAR_INNER_HEIGHT = 8;
@@ -63,4 +63,9 @@ public class Events {
      * app callback is ready. this event will only fire at most once. you may store the <code>AppCallback</code> object.
      */
     public static final Key<AppCallback> AppCallbackReady = Key.of("app-callback-ready", AppCallback.class);
+    /**
+     * downscaled images for the current character size are ready, images should be set again to use them.
+     * the message is the downscale level, 0 means original size
+     */
+    public static final Key<Integer> ImageLevelChanged = Key.of("image-level-changed", Integer.class);
 }
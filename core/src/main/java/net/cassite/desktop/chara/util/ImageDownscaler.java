@@ -0,0 +1,58 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.util;
+
+/**
+ * Halve images with a 2x2 box filter.<br>
+ * Pixels must be premultiplied argb, so that transparent pixels do not darken the edges.
+ */
+public class ImageDownscaler {
+    private ImageDownscaler() {
+    }
+
+    /**
+     * Get size of the halved image
+     *
+     * @param n width or height
+     * @return halved width or height, rounded up
+     */
+    public static int half(int n) {
+        return (n + 1) / 2;
+    }
+
+    /**
+     * Halve the image
+     *
+     * @param px     premultiplied argb pixels, row by row
+     * @param width  width of the image
+     * @param height height of the image
+     * @return pixels of the halved image, size is <code>half(width) * half(height)</code>
+     */
+    public static int[] half(int[] px, int width, int height) {
+        int w = half(width);
+        int h = half(height);
+        int[] out = new int[w * h];
+        for (int y = 0; y < h; ++y) {
+            int y0 = y * 2;
+            int y1 = Math.min(y0 + 1, height - 1);
+            for (int x = 0; x < w; ++x) {
+                int x0 = x * 2;
+                int x1 = Math.min(x0 + 1, width - 1);
+                int p00 = px[y0 * width + x0];
+                int p01 = px[y0 * width + x1];
+                int p10 = px[y1 * width + x0];
+                int p11 = px[y1 * width + x1];
+                if ((p00 | p01 | p10 | p11) == 0) {
+                    continue;
+                }
+                // repeated edge pixels count twice, which keeps the average unbiased
+                int a = ((p00 >>> 24) + (p01 >>> 24) + (p10 >>> 24) + (p11 >>> 24) + 2) >> 2;
+                int r = (((p00 >> 16) & 0xff) + ((p01 >> 16) & 0xff) + ((p10 >> 16) & 0xff) + ((p11 >> 16) & 0xff) + 2) >> 2;
+                int g = (((p00 >> 8) & 0xff) + ((p01 >> 8) & 0xff) + ((p10 >> 8) & 0xff) + ((p11 >> 8) & 0xff) + 2) >> 2;
+                int b = ((p00 & 0xff) + (p01 & 0xff) + (p10 & 0xff) + (p11 & 0xff) + 2) >> 2;
+                out[y * w + x] = (a << 24) | (r << 16) | (g << 8) | b;
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,200 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.util;
+
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+
+/**
+ * Find the smallest rectangle containing all non-transparent pixels of an image.<br>
+ * Pixels are fetched row by row in bulk into a reused buffer,
+ * and the scanning stops as soon as the bounding box cannot grow in the row.<br>
+ * All methods are thread safe.
+ */
+public class ImageTrimmer {
+    private static final ThreadLocal<int[]> scratch = ThreadLocal.withInitial(() -> new int[0]);
+
+    private ImageTrimmer() {
+    }
+
+    /**
+     * Trim the image from a pixel reader
+     *
+     * @param reader pixel reader of the image
+     * @param width  width of the image
+     * @param height height of the image
+     * @return the bounds of non-transparent pixels, or null if the image is fully transparent
+     */
+    public static Bounds trim(PixelReader reader, int width, int height) {
+        return trim(new ReaderRows(reader, width), width, height);
+    }
+
+    /**
+     * Trim the image from an argb array, e.g. from <code>BufferedImage.getRGB</code>
+     *
+     * @param argb   pixels, row by row
+     * @param offset index of the first pixel in the array
+     * @param stride distance between rows in the array
+     * @param width  width of the image
+     * @param height height of the image
+     * @return the bounds of non-transparent pixels, or null if the image is fully transparent
+     */
+    public static Bounds trim(int[] argb, int offset, int stride, int width, int height) {
+        return trim(new ArrayRows(argb, offset, stride), width, height);
+    }
+
+    private static Bounds trim(Rows rows, int width, int height) {
+        // find the first non-transparent row
+        int startY = 0;
+        int firstX = -1;
+        for (; startY < height; ++startY) {
+            firstX = rows.firstOpaque(startY, 0, width);
+            if (firstX != -1) {
+                break;
+            }
+        }
+        if (startY == height) {
+            return null;
+        }
+        // find the last non-transparent row, it must exist since startY row is not transparent
+        int endY = height - 1;
+        int lastOfEndY;
+        while ((lastOfEndY = rows.lastOpaque(endY, 0, width)) == -1) {
+            --endY;
+        }
+
+        // the first pixel of startY row is known, the last one still needs scanning
+        int startX = firstX;
+        int endX = rows.lastOpaque(startY, firstX, width);
+        // the last pixel of endY row is known, the first one still needs scanning
+        if (endY != startY) {
+            startX = Math.min(startX, rows.firstOpaque(endY, 0, lastOfEndY + 1));
+            endX = Math.max(endX, lastOfEndY);
+        }
+        // rows in between: only pixels outside of the current box can change it
+        for (int y = startY + 1; y < endY; ++y) {
+            if (startX > 0) {
+                int first = rows.firstOpaque(y, 0, startX);
+                if (first != -1) {
+                    startX = first;
+                }
+            }
+            if (endX < width - 1) {
+                int last = rows.lastOpaque(y, endX + 1, width);
+                if (last != -1) {
+                    endX = last;
+                }
+            }
+            if (startX == 0 && endX == width - 1) {
+                break;
+            }
+        }
+        return new Bounds(startX, startY, endX - startX + 1, endY - startY + 1);
+    }
+
+    private interface Rows {
+        // index of the first non-transparent pixel in [from, to), or -1
+        int firstOpaque(int y, int from, int to);
+
+        // index of the last non-transparent pixel in [from, to), or -1
+        int lastOpaque(int y, int from, int to);
+    }
+
+    private static class ReaderRows implements Rows {
+        private final PixelReader reader;
+        private final int[] buf;
+
+        ReaderRows(PixelReader reader, int width) {
+            this.reader = reader;
+            int[] buf = scratch.get();
+            if (buf.length < width) {
+                buf = new int[width];
+                scratch.set(buf);
+            }
+            this.buf = buf;
+        }
+
+        private void read(int y, int from, int to) {
+            // premultiplied, so all transparent pixels are 0
+            reader.getPixels(from, y, to - from, 1, PixelFormat.getIntArgbPreInstance(), buf, 0, to - from);
+        }
+
+        @Override
+        public int firstOpaque(int y, int from, int to) {
+            read(y, from, to);
+            for (int i = 0, n = to - from; i < n; ++i) {
+                if (buf[i] != 0) {
+                    return from + i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int lastOpaque(int y, int from, int to) {
+            read(y, from, to);
+            for (int i = to - from - 1; i >= 0; --i) {
+                if (buf[i] != 0) {
+                    return from + i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static class ArrayRows implements Rows {
+        private final int[] argb;
+        private final int offset;
+        private final int stride;
+
+        ArrayRows(int[] argb, int offset, int stride) {
+            this.argb = argb;
+            this.offset = offset;
+            this.stride = stride;
+        }
+
+        @Override
+        public int firstOpaque(int y, int from, int to) {
+            int base = offset + y * stride;
+            for (int x = from; x < to; ++x) {
+                if ((argb[base + x] >>> 24) != 0) {
+                    return x;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int lastOpaque(int y, int from, int to) {
+            int base = offset + y * stride;
+            for (int x = to - 1; x >= from; --x) {
+                if ((argb[base + x] >>> 24) != 0) {
+                    return x;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * The bounding box of non-transparent pixels
+     */
+    public static class Bounds {
+        public final int x;
+        public final int y;
+        public final int width;
+        public final int height;
+
+        public Bounds(int x, int y, int width, int height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + width + "," + height + "]+(" + x + "," + y + ")";
+        }
+    }
+}
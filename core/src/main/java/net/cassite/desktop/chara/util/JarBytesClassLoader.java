@@ -0,0 +1,131 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Class loader serving classes and resources from the bytes of jars, the jars are never written to disk.<br>
+ * Entries of all jars are indexed in memory when constructing, and a jar listed earlier wins when names conflict,
+ * which is the same as <code>URLClassLoader</code>.<br>
+ * Class files can also be retrieved as resources, for example by bytecode tools, so their bytes are kept.
+ */
+class JarBytesClassLoader extends ClassLoader {
+    private static final String PROTOCOL = "chara-jar";
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final Map<String, byte[]> entries = new ConcurrentHashMap<>();
+    private final URLStreamHandler handler = new Handler();
+
+    /**
+     * Constructor
+     *
+     * @param name   name of the class loader
+     * @param jars   content of the jars
+     * @param parent parent class loader
+     * @throws IOException failed to read the jars
+     */
+    JarBytesClassLoader(String name, List<byte[]> jars, ClassLoader parent) throws IOException {
+        super(name, parent);
+        for (byte[] jar : jars) {
+            try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(jar))) {
+                ZipEntry entry;
+                while ((entry = zis.getNextEntry()) != null) {
+                    if (entry.isDirectory()) {
+                        continue;
+                    }
+                    if (entries.containsKey(entry.getName())) {
+                        continue;
+                    }
+                    entries.put(entry.getName(), zis.readAllBytes());
+                }
+            }
+        }
+        assert Logger.debug("class loader " + name + " indexed " + entries.size() + " entries");
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        String path = name.replace('.', '/') + ".class";
+        byte[] bytes = entries.get(path);
+        if (bytes == null) {
+            throw new ClassNotFoundException(name);
+        }
+        int dot = name.lastIndexOf('.');
+        if (dot != -1) {
+            String pkg = name.substring(0, dot);
+            if (getDefinedPackage(pkg) == null) {
+                try {
+                    definePackage(pkg, null, null, null, null, null, null, null);
+                } catch (IllegalArgumentException ignore) {
+                    // defined by another thread
+                }
+            }
+        }
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+
+    @Override
+    protected URL findResource(String name) {
+        if (!entries.containsKey(name)) {
+            return null;
+        }
+        try {
+            return new URL(PROTOCOL, null, -1, "/" + name, handler);
+        } catch (MalformedURLException e) {
+            Logger.warn("building url for resource " + name + " failed", e);
+            return null;
+        }
+    }
+
+    @Override
+    protected Enumeration<URL> findResources(String name) {
+        URL url = findResource(name);
+        if (url == null) {
+            return Collections.emptyEnumeration();
+        }
+        return Collections.enumeration(List.of(url));
+    }
+
+    private class Handler extends URLStreamHandler {
+        @Override
+        protected URLConnection openConnection(URL u) throws IOException {
+            byte[] bytes = entries.get(u.getPath().substring(1));
+            if (bytes == null) {
+                throw new IOException("resource not found: " + u);
+            }
+            return new URLConnection(u) {
+                @Override
+                public void connect() {
+                    connected = true;
+                }
+
+                @Override
+                public int getContentLength() {
+                    return bytes.length;
+                }
+
+                @Override
+                public InputStream getInputStream() {
+                    return new ByteArrayInputStream(bytes);
+                }
+            };
+        }
+    }
+}
@@ -22,7 +22,8 @@ public class ResourceHandler {
      * handler of the resource.<br>
      * the handler takes an inputstream object and a callback object.<br>
      * when the handling finishes, the {@link Callback#succeeded(Object)} or {@link Callback#failed(Throwable)} should be called.<br>
-     * exceptions are also allowed to be thrown, which will terminate the loading process
+     * exceptions are also allowed to be thrown, which will terminate the loading process.<br>
+     * the handler is called on a thread which is allowed to block, see {@link net.cassite.desktop.chara.ThreadUtils#submitBlocking(Runnable)}
      */
     public final BiConsumerThrowsException<InputStream, Callback<Void, Exception>> handler;
 
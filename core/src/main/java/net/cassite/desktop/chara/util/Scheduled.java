@@ -12,6 +12,7 @@ import vproxybase.selector.TimerEvent;
 public class Scheduled {
     private TimerEvent initialDelayEvent;
     private PeriodicEvent periodicEvent;
+    private Runnable cancelFunc;
 
     public Scheduled(SelectorEventLoop loop, int initialDelay, int duration, Runnable runnable) {
         initialDelayEvent = loop.delay(initialDelay, () -> {
@@ -24,10 +25,22 @@ public class Scheduled {
         });
     }
 
+    /**
+     * Constructor for events not managed by an event loop
+     *
+     * @param cancelFunc called when the event is cancelled
+     */
+    Scheduled(Runnable cancelFunc) {
+        this.cancelFunc = cancelFunc;
+    }
+
     /**
      * cancel the event
      */
     public void cancel() {
+        if (cancelFunc != null) {
+            cancelFunc.run();
+        }
         if (initialDelayEvent != null) {
             initialDelayEvent.cancel();
         }
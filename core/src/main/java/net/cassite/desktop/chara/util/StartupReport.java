@@ -0,0 +1,208 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.util;
+
+import net.cassite.desktop.chara.Global;
+import net.cassite.desktop.chara.ThreadUtils;
+import vjson.util.ObjectBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records how long each startup step takes.<br>
+ * The report is written to the log and to <code>~/.chara/config/startup/{modelName}-{version}.json</code>
+ * when the first frame is shown, and written again when background loading is done.<br>
+ * Time is measured in milliseconds since the process started.
+ * Steps waiting for user input (e.g. choosing the model file) are included as is.
+ */
+public class StartupReport {
+    private static final String DIR_NAME = "startup";
+
+    private StartupReport() {
+    }
+
+    private static final long processStart = ProcessHandle.current().info().startInstant()
+        .map(Instant::toEpochMilli).orElse(System.currentTimeMillis());
+    private static final Map<String, Long> phaseBegin = new LinkedHashMap<>(); // guarded by StartupReport.class
+    private static final List<Step> phases = new ArrayList<>(); // guarded by StartupReport.class
+    private static final List<Step> plugins = new ArrayList<>(); // guarded by StartupReport.class
+    private static final List<Step> resources = new ArrayList<>(); // guarded by StartupReport.class
+    private static final Map<String, Long> counters = new LinkedHashMap<>(); // guarded by StartupReport.class
+    private static long firstFrame = -1; // guarded by StartupReport.class
+    private static long writeSeq = 0; // guarded by StartupReport.class
+    private static long savedSeq = 0; // guarded by StartupReport.class
+
+    /**
+     * Mark the beginning of a startup phase
+     *
+     * @param phase name of the phase
+     */
+    public static synchronized void begin(String phase) {
+        phaseBegin.put(phase, System.currentTimeMillis());
+    }
+
+    /**
+     * Mark the end of a startup phase
+     *
+     * @param phase name of the phase, which must have been passed to {@link #begin(String)}
+     */
+    public static synchronized void end(String phase) {
+        Long begin = phaseBegin.remove(phase);
+        if (begin == null) {
+            assert Logger.debug("startup phase " + phase + " is not started");
+            return;
+        }
+        phases.add(new Step(phase, begin, System.currentTimeMillis()));
+    }
+
+    /**
+     * Record a step of loading a plugin
+     *
+     * @param plugin name of the plugin
+     * @param step   e.g. preload, launch or a resource entry
+     * @param begin  when the step began, from {@link System#currentTimeMillis()}
+     */
+    public static synchronized void plugin(String plugin, String step, long begin) {
+        plugins.add(new Step(plugin + ":" + step, begin, System.currentTimeMillis()));
+    }
+
+    /**
+     * Record time spent by a resource handler of the model
+     *
+     * @param entry entry handled by the handler
+     * @param begin when the handler began, from {@link System#currentTimeMillis()}
+     */
+    public static synchronized void resource(String entry, long begin) {
+        resources.add(new Step(entry, begin, System.currentTimeMillis()));
+    }
+
+    /**
+     * Set counters, existing counters with the same names are replaced
+     *
+     * @param values name to value
+     */
+    public static synchronized void count(Map<String, Long> values) {
+        counters.putAll(values);
+    }
+
+    /**
+     * Mark the first frame as shown, then write the report.<br>
+     * Calls after the first one are ignored.
+     */
+    public static void firstFrame() {
+        synchronized (StartupReport.class) {
+            if (firstFrame != -1) {
+                return;
+            }
+            firstFrame = System.currentTimeMillis();
+        }
+        write();
+    }
+
+    /**
+     * Write the report to the log and to the report file.<br>
+     * The file is written on a blocking thread.
+     */
+    public static void write() {
+        String json;
+        long seq;
+        synchronized (StartupReport.class) {
+            json = build();
+            seq = ++writeSeq;
+        }
+        Logger.info("startup report: " + json);
+        ThreadUtils.get().submitBlocking(() -> {
+            try {
+                save(json, seq);
+            } catch (Exception e) {
+                Logger.warn("saving startup report failed", e);
+            }
+        });
+    }
+
+    private static String build() {
+        ObjectBuilder ob = new ObjectBuilder();
+        ob.put("version", Consts.VERSION);
+        if (Global.model != null) {
+            ob.put("model", Global.model.name());
+            ob.put("model_version", Utils.verNum2Str(Global.model.version()));
+        }
+        ob.put("timestamp", System.currentTimeMillis());
+        ob.put("class_data_sharing", classDataSharing());
+        ob.put("training", Global.trainingModelFile != null);
+        if (firstFrame != -1) {
+            ob.put("first_frame", firstFrame - processStart);
+        }
+        ob.putObject("phases", o -> put(o, phases));
+        ob.putObject("plugins", o -> put(o, plugins));
+        ob.putObject("resources", o -> put(o, resources));
+        ob.putObject("counters", o -> {
+            for (var e : counters.entrySet()) {
+                o.put(e.getKey(), e.getValue());
+            }
+        });
+        return ob.build().pretty();
+    }
+
+    private static void put(ObjectBuilder ob, List<Step> steps) {
+        for (var s : steps) {
+            ob.putObject(s.name, o -> o
+                .put("begin", s.begin - processStart)
+                .put("cost", s.end - s.begin));
+        }
+    }
+
+    // the archive file when specified, otherwise off or default
+    private static String classDataSharing() {
+        String[] args = ProcessHandle.current().info().arguments().orElse(new String[0]);
+        String ret = "default";
+        for (String arg : args) {
+            if (arg.equals("-Xshare:off")) {
+                return "off";
+            }
+            if (arg.startsWith("-XX:SharedArchiveFile=")) {
+                ret = arg.substring("-XX:SharedArchiveFile=".length());
+            }
+        }
+        return ret;
+    }
+
+    // saves may run at the same time and in any order, only the latest report is kept
+    private static synchronized void save(String json, long seq) throws IOException {
+        if (seq <= savedSeq) {
+            return;
+        }
+        File dir = new File(System.getProperty("user.home") + "/" + Consts.CONFIG_BASE_DIR + "/" + DIR_NAME);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("mkdirs failed: " + dir);
+        }
+        String name = (Global.model == null ? "unknown" : Global.model.name()) + "-" + Consts.VERSION + ".json";
+        File file = new File(dir, name);
+        File tmp = new File(dir, name + ".tmp");
+        Files.write(tmp.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        savedSeq = seq;
+        assert Logger.debug("startup report saved to " + file);
+    }
+
+    private static class Step {
+        final String name;
+        final long begin;
+        final long end;
+
+        Step(String name, long begin, long end) {
+            this.name = name;
+            this.begin = begin;
+            this.end = end;
+        }
+    }
+}
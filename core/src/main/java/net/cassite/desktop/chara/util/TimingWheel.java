@@ -0,0 +1,263 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.util;
+
+/**
+ * Hierarchical timing wheel, similar to the timer wheel of the Linux kernel.<br>
+ * Time is measured in ticks of {@link #TICK} millis. There are {@link #LEVELS} levels of {@link #SLOTS} slots,
+ * a timer is put into the lowest level covering its delay, and moved to lower levels when the time comes near.
+ * Inserting and removing are O(1), each slot is a doubly linked list.<br>
+ * The wheel is not thread safe, all methods must be called on the same thread.
+ */
+class TimingWheel {
+    static final int TICK = 10;
+    private static final int BITS = 6;
+    static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (BITS * LEVELS)) - 1;
+
+    private final Timer[][] slots = new Timer[LEVELS][SLOTS];
+    private final int[] levelSize = new int[LEVELS];
+    // the next tick to be processed
+    private long currentTick;
+    private int size = 0;
+
+    TimingWheel(long nowMillis) {
+        this.currentTick = nowMillis / TICK;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Add a timer which is not in the wheel
+     *
+     * @param timer     the timer
+     * @param nowMillis current time in millis
+     */
+    void add(Timer timer, long nowMillis) {
+        if (timer.level != -1) {
+            throw new IllegalStateException("timer is already added");
+        }
+        long nowTick = nowMillis / TICK;
+        if (size == 0 && currentTick < nowTick) {
+            // nothing to process in between
+            currentTick = nowTick;
+        }
+        timer.expires = (nowMillis + timer.delay + TICK - 1) / TICK;
+        insert(timer);
+        ++size;
+    }
+
+    /**
+     * Remove a timer, nothing happens if it's not in the wheel
+     *
+     * @param timer the timer
+     */
+    void remove(Timer timer) {
+        // it may be detached and waiting to be run
+        timer.cancelled = true;
+        if (timer.level == -1) {
+            return;
+        }
+        unlink(timer);
+        --size;
+    }
+
+    private void insert(Timer timer) {
+        long expires = Math.max(timer.expires, currentTick);
+        long delta = Math.min(expires - currentTick, MAX_DELTA);
+        int level = 0;
+        while (delta >= SLOTS) {
+            delta >>= BITS;
+            ++level;
+        }
+        if (expires - currentTick > MAX_DELTA) {
+            expires = currentTick + MAX_DELTA;
+        }
+        int idx = (int) ((expires >> (BITS * level)) & MASK);
+        Timer head = slots[level][idx];
+        timer.level = level;
+        timer.slot = idx;
+        timer.prev = null;
+        timer.next = head;
+        if (head != null) {
+            head.prev = timer;
+        }
+        slots[level][idx] = timer;
+        ++levelSize[level];
+    }
+
+    private void unlink(Timer timer) {
+        if (timer.prev == null) {
+            slots[timer.level][timer.slot] = timer.next;
+        } else {
+            timer.prev.next = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        --levelSize[timer.level];
+        timer.level = -1;
+        timer.prev = null;
+        timer.next = null;
+    }
+
+    // detach all timers in the slot, the returned list is linked by next
+    private Timer detach(int level, int idx) {
+        Timer head = slots[level][idx];
+        slots[level][idx] = null;
+        for (Timer t = head; t != null; t = t.next) {
+            --levelSize[level];
+            t.level = -1;
+        }
+        return head;
+    }
+
+    private void cascade(int level) {
+        int idx = (int) ((currentTick >> (BITS * level)) & MASK);
+        Timer t = detach(level, idx);
+        while (t != null) {
+            Timer next = t.next;
+            insert(t);
+            t = next;
+        }
+        if (idx == 0 && level + 1 < LEVELS) {
+            cascade(level + 1);
+        }
+    }
+
+    /**
+     * Process all ticks up to now, and run expired timers.<br>
+     * Periodic timers are added back before running, so they may be removed in their callbacks.
+     *
+     * @param nowMillis current time in millis
+     */
+    void advance(long nowMillis) {
+        long nowTick = nowMillis / TICK;
+        while (currentTick <= nowTick) {
+            if (size == 0) {
+                currentTick = nowTick + 1;
+                return;
+            }
+            if (levelSize[0] == 0 && (currentTick & MASK) != 0) {
+                // nothing to run until the next cascade
+                long next = (currentTick | MASK) + 1;
+                if (next > nowTick) {
+                    currentTick = nowTick + 1;
+                    return;
+                }
+                currentTick = next;
+                continue;
+            }
+            if ((currentTick & MASK) == 0) {
+                cascade(1);
+            }
+            Timer t = detach(0, (int) (currentTick & MASK));
+            ++currentTick;
+            while (t != null) {
+                Timer next = t.next;
+                t.prev = null;
+                t.next = null;
+                --size;
+                if (t.cancelled) {
+                    t = next;
+                    continue;
+                }
+                if (t.period > 0) {
+                    // skip missed periods instead of running them all at once
+                    long periodTicks = Math.max(1, (t.period + TICK - 1) / TICK);
+                    long expires = t.expires + periodTicks;
+                    if (expires <= nowTick) {
+                        expires += ((nowTick - expires) / periodTicks + 1) * periodTicks;
+                    }
+                    t.expires = expires;
+                    insert(t);
+                    ++size;
+                }
+                t.run();
+                t = next;
+            }
+        }
+    }
+
+    /**
+     * Get the time when {@link #advance(long)} needs to be called next time.<br>
+     * This is the earliest tick running timers or moving timers to lower levels, so it might be earlier than any of the timers.
+     *
+     * @return time in millis, or -1 if there are no timers
+     */
+    long nextMillis() {
+        if (size == 0) {
+            return -1;
+        }
+        long ret = Long.MAX_VALUE;
+        if (levelSize[0] != 0) {
+            for (int i = 0; i < SLOTS; ++i) {
+                long tick = currentTick + i;
+                if (slots[0][(int) (tick & MASK)] != null) {
+                    ret = tick;
+                    break;
+                }
+            }
+        }
+        for (int level = 1; level < LEVELS; ++level) {
+            if (levelSize[level] == 0) {
+                continue;
+            }
+            int shift = BITS * level;
+            // the slots of this level are moved down when the lower bits of the tick are all zero
+            long first = ((currentTick + (1L << shift) - 1) >> shift) << shift;
+            for (int i = 0; i < SLOTS; ++i) {
+                long tick = first + ((long) i << shift);
+                if (tick >= ret) {
+                    break;
+                }
+                if (slots[level][(int) ((tick >> shift) & MASK)] != null) {
+                    ret = tick;
+                    break;
+                }
+            }
+        }
+        return ret * TICK;
+    }
+
+    /**
+     * A timer in the wheel
+     */
+    static class Timer {
+        final Runnable runnable;
+        final int delay;
+        final int period;
+        long expires;
+        volatile boolean cancelled = false;
+        int level = -1;
+        int slot;
+        Timer prev;
+        Timer next;
+
+        /**
+         * Constructor
+         *
+         * @param runnable task to run
+         * @param delay    delay in millis
+         * @param period   period in millis, or 0 if the timer only runs once
+         */
+        Timer(Runnable runnable, int delay, int period) {
+            this.runnable = runnable;
+            this.delay = Math.max(0, delay);
+            this.period = Math.max(0, period);
+        }
+
+        void run() {
+            try {
+                runnable.run();
+            } catch (Throwable t) {
+                // Logger.error would show a dialog and re-enter the wheel from the nested event loop
+                Logger.warn("timer task failed", t);
+            }
+        }
+    }
+}
@@ -8,6 +8,7 @@ import javafx.scene.image.Image;
 import javafx.stage.Stage;
 import net.cassite.desktop.chara.ThreadUtils;
 import net.cassite.desktop.chara.manager.ConfigManager;
+import net.cassite.desktop.chara.manager.ModelArchive;
 import net.cassite.desktop.chara.manager.PluginManager;
 import org.jnativehook.GlobalScreen;
 import org.jnativehook.NativeHookException;
@@ -15,16 +16,12 @@ import vproxybase.dns.Resolver;
 
 import java.awt.*;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URL;
-import java.net.URLClassLoader;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipFile;
 
 public class Utils {
@@ -117,7 +114,7 @@ public class Utils {
         if (old != null) {
             old.cancel();
         }
-        var now = ThreadUtils.get().scheduleFX(r, delay, TimeUnit.MILLISECONDS);
+        var now = Clock.get().schedule(r, delay);
         delayedTasks.put(reason, now);
     }
 
@@ -128,7 +125,7 @@ public class Utils {
      * @param r     callback function
      */
     public static void delayNoRecord(int delay, Runnable r) {
-        ThreadUtils.get().scheduleFX(r, delay, TimeUnit.MILLISECONDS);
+        Clock.get().schedule(r, delay);
     }
 
     /**
@@ -138,7 +135,7 @@ public class Utils {
      */
     public static void randomDelay(Runnable r) {
         var rnd = ThreadLocalRandom.current();
-        ThreadUtils.get().scheduleFX(r, rnd.nextInt(1000), TimeUnit.MILLISECONDS);
+        Clock.get().schedule(r, rnd.nextInt(1000));
     }
 
     /**
@@ -147,7 +144,7 @@ public class Utils {
      * @param r callback function
      */
     public static void shortDelay(Runnable r) {
-        ThreadUtils.get().scheduleFX(r, 50, TimeUnit.MILLISECONDS);
+        Clock.get().schedule(r, 50);
     }
 
     /**
@@ -167,6 +164,7 @@ public class Utils {
         ConfigManager.saveNow();
         Platform.runLater(() -> PluginManager.get().release());
         ThreadUtils.get().shutdownNow();
+        ModelArchive.release();
         try {
             Resolver.getDefault().stop();
         } catch (IOException ignore) {
@@ -270,10 +268,11 @@ public class Utils {
     }
 
     /**
-     * Load all jars matching the prefix in the zipFile and return the specified <code>Class</code> object.
+     * Load all jars under <code>code/</code> in the zipFile and return the specified <code>Class</code> object.<br>
+     * The jars are loaded from memory without being extracted.
      *
      * @param zipFile   zip file
-     * @param prefix    jar entry prefix
+     * @param prefix    name of the class loader
      * @param classname name of the class to load
      * @return <code>Class</code>
      * @throws Exception any exception when loading
@@ -288,48 +287,25 @@ public class Utils {
             // only catch ClassNotFound here
             // other exception will be thrown
         }
-        // try to load jar file
+        // read jars into memory
         var entries = zipFile.entries();
-        List<URL> tempFileUrls = new LinkedList<>();
-        int tempFileCount = 0;
+        List<byte[]> jars = new LinkedList<>();
         while (entries.hasMoreElements()) {
             var entry = entries.nextElement();
             if (entry.getName().startsWith("code/") && entry.getName().endsWith(".jar") && !entry.isDirectory()) {
-                Logger.info("releasing jar: " + entry.getName());
-
-                InputStream inputStream = zipFile.getInputStream(entry);
-                File tempFile = File.createTempFile("release-" + prefix + "-" + (tempFileCount++), ".jar");
-                tempFile.deleteOnExit();
-
-                FileOutputStream fos = new FileOutputStream(tempFile);
-
-                byte[] buf = new byte[1024 * 1024];
-                int n;
-                while ((n = inputStream.read(buf)) >= 0) {
-                    fos.write(buf, 0, n);
+                Logger.info("loading jar: " + entry.getName());
+                try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                    jars.add(inputStream.readAllBytes());
                 }
-                fos.flush();
-                try {
-                    fos.close();
-                } catch (Exception ignore) {
-                }
-                try {
-                    inputStream.close();
-                } catch (Exception ignore) {
-                }
-
-                tempFileUrls.add(tempFile.toURI().toURL());
             }
         }
-        if (tempFileUrls.isEmpty()) {
+        if (jars.isEmpty()) {
             throw new Exception("no code found in zip file");
         }
-        URL[] urlArray = new URL[tempFileUrls.size()];
-        tempFileUrls.toArray(urlArray);
 
         // do load
-        URLClassLoader urlClassLoader = new URLClassLoader(urlArray);
-        return urlClassLoader.loadClass(classname);
+        var classLoader = new JarBytesClassLoader(prefix, jars, ClassLoader.getSystemClassLoader());
+        return classLoader.loadClass(classname);
     }
 
     /**
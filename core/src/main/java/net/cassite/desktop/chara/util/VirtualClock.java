@@ -0,0 +1,195 @@
+// ***LICENSE*** This file is licensed under GPLv2 with Classpath Exception. See LICENSE file under project root for more info
+
+package net.cassite.desktop.chara.util;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
+
+/**
+ * A clock which only moves when {@link #advance(long)} is called.<br>
+ * Time does not depend on how long the callbacks take, so animations can be stepped
+ * faster than real time and without JavaFX running.
+ * Delayed tasks and pulses are run on the thread calling {@link #advance(long)}, in the order of time.
+ * Tasks submitted from other threads are run when the clock is advanced next time.
+ */
+public class VirtualClock extends Clock {
+    public static final int DEFAULT_PULSE_NANOS = 1_000_000_000 / 60;
+
+    private final long startMillis;
+    private final long pulseNanos;
+    private final PriorityQueue<Task> tasks = new PriorityQueue<>(); // guarded by tasks
+    private final ConcurrentLinkedQueue<Runnable> executions = new ConcurrentLinkedQueue<>();
+    private final CopyOnWriteArrayList<VirtualPulse> pulses = new CopyOnWriteArrayList<>();
+    private volatile long nanos = 0;
+    private long nextPulseNanos; // only accessed by the advancing thread
+    private long seq = 0; // guarded by tasks
+
+    /**
+     * Constructor, the time starts at current system time, and pulses are generated at 60 fps
+     */
+    public VirtualClock() {
+        this(System.currentTimeMillis(), DEFAULT_PULSE_NANOS);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param startMillis value of {@link #currentTimeMillis()} before advancing
+     * @param pulseNanos  virtual nanos between two pulses
+     */
+    public VirtualClock(long startMillis, long pulseNanos) {
+        if (pulseNanos <= 0) {
+            throw new IllegalArgumentException("pulseNanos must be positive: " + pulseNanos);
+        }
+        this.startMillis = startMillis;
+        this.pulseNanos = pulseNanos;
+        this.nextPulseNanos = pulseNanos;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return startMillis + nanos / 1_000_000;
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanos;
+    }
+
+    @Override
+    public Scheduled schedule(Runnable runnable, int delay) {
+        return add(new Task(runnable, 0), delay);
+    }
+
+    @Override
+    public Scheduled scheduleAtFixedRate(Runnable runnable, int initialDelay, int period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive: " + period);
+        }
+        return add(new Task(runnable, period), initialDelay);
+    }
+
+    private Scheduled add(Task task, int delay) {
+        synchronized (tasks) {
+            task.nanos = nanos + Math.max(0, delay) * 1_000_000L;
+            task.seq = seq++;
+            tasks.add(task);
+        }
+        return new Scheduled(() -> {
+            task.cancelled = true;
+            synchronized (tasks) {
+                tasks.remove(task);
+            }
+        });
+    }
+
+    @Override
+    public void execute(Runnable runnable) {
+        executions.add(runnable);
+    }
+
+    @Override
+    public Pulse pulse(LongConsumer handler) {
+        return new VirtualPulse(handler);
+    }
+
+    /**
+     * Move the time forward, running due tasks and pulses on the way
+     *
+     * @param millis virtual millis to advance
+     */
+    public void advance(long millis) {
+        long target = nanos + millis * 1_000_000L;
+        while (true) {
+            runExecutions();
+            Task task;
+            synchronized (tasks) {
+                task = tasks.peek();
+                if (task != null && task.nanos <= target && task.nanos <= nextPulseNanos) {
+                    tasks.poll();
+                } else {
+                    task = null;
+                }
+            }
+            if (task != null) {
+                nanos = Math.max(nanos, task.nanos);
+                if (task.period > 0 && !task.cancelled) {
+                    synchronized (tasks) {
+                        task.nanos += task.period * 1_000_000L;
+                        task.seq = seq++;
+                        tasks.add(task);
+                    }
+                }
+                task.runnable.run();
+                continue;
+            }
+            if (nextPulseNanos > target) {
+                break;
+            }
+            nanos = nextPulseNanos;
+            nextPulseNanos += pulseNanos;
+            for (VirtualPulse pulse : pulses) {
+                pulse.handler.accept(nanos);
+            }
+        }
+        nanos = target;
+        runExecutions();
+    }
+
+    private void runExecutions() {
+        Runnable r;
+        while ((r = executions.poll()) != null) {
+            r.run();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualClock{" +
+            "startMillis=" + startMillis +
+            ", pulseNanos=" + pulseNanos +
+            ", nanos=" + nanos +
+            '}';
+    }
+
+    private static class Task implements Comparable<Task> {
+        final Runnable runnable;
+        final int period;
+        long nanos; // guarded by tasks
+        long seq; // guarded by tasks
+        volatile boolean cancelled = false;
+
+        Task(Runnable runnable, int period) {
+            this.runnable = runnable;
+            this.period = period;
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            if (nanos != o.nanos) {
+                return Long.compare(nanos, o.nanos);
+            }
+            return Long.compare(seq, o.seq);
+        }
+    }
+
+    private class VirtualPulse implements Pulse {
+        final LongConsumer handler;
+
+        VirtualPulse(LongConsumer handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void start() {
+            pulses.addIfAbsent(this);
+        }
+
+        @Override
+        public void stop() {
+            pulses.remove(this);
+        }
+    }
+}
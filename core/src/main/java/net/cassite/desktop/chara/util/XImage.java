@@ -2,6 +2,7 @@
 
 package net.cassite.desktop.chara.util;
 
+import javafx.geometry.Rectangle2D;
 import javafx.scene.image.Image;
 
 /**
@@ -24,29 +25,60 @@ public class XImage {
      * the cut image
      */
     public final Image image;
+    /**
+     * the region of the cut image inside {@link #image}, or null if the whole image is used.<br>
+     * the region is set when the image is packed into an atlas sheet
+     */
+    public final Rectangle2D viewport;
+    private final double width;
+    private final double height;
 
     public XImage(long time, int x, int y, Image image) {
+        this(time, x, y, image, null);
+    }
+
+    public XImage(long time, int x, int y, Image image, Rectangle2D viewport) {
+        this(time, x, y, image, viewport,
+            viewport == null ? image.getWidth() : viewport.getWidth(),
+            viewport == null ? image.getHeight() : viewport.getHeight());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param time     last modification time
+     * @param x        x offset
+     * @param y        y offset
+     * @param image    the image
+     * @param viewport region in the image, may be null
+     * @param width    width of the cut image in the original image, which may differ from the pixels when downscaled
+     * @param height   height of the cut image in the original image, which may differ from the pixels when downscaled
+     */
+    public XImage(long time, int x, int y, Image image, Rectangle2D viewport, double width, double height) {
         this.time = time;
         this.x = x;
         this.y = y;
         this.image = image;
+        this.viewport = viewport;
+        this.width = width;
+        this.height = height;
     }
 
     /**
-     * Get width of the cut image
+     * Get width of the cut image in the original image
      *
-     * @return {@link Image#getWidth()}
+     * @return {@link Image#getWidth()}, or width of the viewport if exists, or the width specified when constructing
      */
     public double getWidth() {
-        return image.getWidth();
+        return width;
     }
 
     /**
-     * Get height of the cut image
+     * Get height of the cut image in the original image
      *
-     * @return {@link Image#getHeight()}
+     * @return {@link Image#getHeight()}, or height of the viewport if exists, or the height specified when constructing
      */
     public double getHeight() {
-        return image.getHeight();
+        return height;
     }
 }
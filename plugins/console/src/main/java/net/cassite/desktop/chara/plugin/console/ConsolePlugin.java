@@ -15,6 +15,7 @@ import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Future;
 
 public class ConsolePlugin implements Plugin {
     private static final int MAX_ELEMENTS = 1000;
@@ -22,8 +23,8 @@ public class ConsolePlugin implements Plugin {
     private final ConsoleStage consoleStage;
     private final ByteArrayOutputStream stdout;
     private final ByteArrayOutputStream stderr;
-    private Thread stdoutThread;
-    private Thread stderrThread;
+    private Future<?> stdoutReader;
+    private Future<?> stderrReader;
 
     private final PrintStream originalStdout;
     private final PrintStream originalStderr;
@@ -113,11 +114,9 @@ public class ConsolePlugin implements Plugin {
         System.setErr(new PrintStream(this.stderr));
         Logger.info("switched stdout/stderr");
         stdout.reset();
-        stdoutThread = new Thread(() -> readLog(stdout), "console-plugin-stdout");
-        stdoutThread.start();
+        stdoutReader = ThreadUtils.get().submitBlocking(() -> readLog(stdout));
         stderr.reset();
-        stderrThread = new Thread(() -> readLog(stderr), "console-plugin-stderr");
-        stderrThread.start();
+        stderrReader = ThreadUtils.get().submitBlocking(() -> readLog(stderr));
 
         ThreadUtils.get().runOnFX(() -> {
             consoleStage.show();
@@ -132,8 +131,12 @@ public class ConsolePlugin implements Plugin {
         }
         stopped = true;
         ThreadUtils.get().runOnFX(consoleStage::hide);
-        stdoutThread.interrupt();
-        stderrThread.interrupt();
+        if (stdoutReader != null) {
+            stdoutReader.cancel(true);
+        }
+        if (stderrReader != null) {
+            stderrReader.cancel(true);
+        }
         System.setOut(originalStdout);
         System.setErr(originalStderr);
         Logger.info("restored stdout/stderr");
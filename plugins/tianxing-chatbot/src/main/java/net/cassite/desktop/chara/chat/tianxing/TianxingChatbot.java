@@ -12,12 +12,15 @@ import vclient.impl.Http1ClientImpl;
 import vfd.IP;
 import vfd.IPPort;
 import vjson.JSON;
+import vproxybase.connection.NetEventLoop;
 import vproxybase.dns.Resolver;
 import vproxybase.util.Callback;
 
 import java.net.URLEncoder;
 import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 public class TianxingChatbot extends AbstractChatbot implements Chatbot {
     private static final String HOSTNAME = "api.tianapi.com";
@@ -39,7 +42,10 @@ public class TianxingChatbot extends AbstractChatbot implements Chatbot {
     }
 
     private String apiKey;
+    // the client and the following fields are only accessed on this loop
+    private final NetEventLoop loop = ThreadUtils.get().getLoop();
     private HttpClient httpClient;
+    private List<String> waitingForResolve;
 
     public TianxingChatbot() {
         super("tianxing");
@@ -55,26 +61,37 @@ public class TianxingChatbot extends AbstractChatbot implements Chatbot {
 
     @Override
     public void takeMessage(String msg) {
-        if (httpClient == null) {
-            synchronized (this) {
-                if (httpClient == null) {
-                    Resolver.getDefault().resolve(HOSTNAME, new Callback<>() {
-                        @Override
-                        protected void onSucceeded(IP ip) {
-                            httpClient = new Http1ClientImpl(new IPPort(ip, 80), ThreadUtils.get().getLoop(), 5000);
-                            sendRequest(msg);
-                        }
+        loop.getSelectorEventLoop().runOnLoop(() -> doTakeMessage(msg));
+    }
 
-                        @Override
-                        protected void onFailed(UnknownHostException err) {
-                            Logger.error("cannot resolve " + HOSTNAME, err);
-                        }
-                    });
-                    return;
-                }
-            }
+    private void doTakeMessage(String msg) {
+        if (httpClient != null) {
+            sendRequest(msg);
+            return;
         }
-        sendRequest(msg);
+        if (waitingForResolve != null) {
+            waitingForResolve.add(msg);
+            return;
+        }
+        waitingForResolve = new ArrayList<>();
+        waitingForResolve.add(msg);
+        Resolver.getDefault().resolve(HOSTNAME, new Callback<>() {
+            @Override
+            protected void onSucceeded(IP ip) {
+                loop.getSelectorEventLoop().runOnLoop(() -> {
+                    httpClient = new Http1ClientImpl(new IPPort(ip, 80), loop, 5000);
+                    var ls = waitingForResolve;
+                    waitingForResolve = null;
+                    ls.forEach(TianxingChatbot.this::sendRequest);
+                });
+            }
+
+            @Override
+            protected void onFailed(UnknownHostException err) {
+                loop.getSelectorEventLoop().runOnLoop(() -> waitingForResolve = null);
+                Logger.error("cannot resolve " + HOSTNAME, err);
+            }
+        });
     }
 
     private void sendRequest(String msg) {